@@ -0,0 +1,71 @@
+package benchmarks;
+
+import ascii_art.AsciiArtAlgorithm;
+import image.BrightnessGrid;
+import image.EditImage;
+import image_char_matching.ShapeLookupTable;
+import image_char_matching.SubImgCharMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures matching an already computed brightness grid to characters,
+ * sequentially and on all processors, by brightness only and by shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true"})
+public class CharMatchingBenchmark {
+    @Param({"128", "512", "2048"})
+    public int resolution;
+
+    @Param({"10", "95"})
+    public int charsetSize;
+
+    private EditImage editImage;
+    private BrightnessGrid cells;
+    private SubImgCharMatcher charMatcher;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() throws IOException {
+        editImage = new EditImage(SyntheticImages.create(2048, 2048), resolution);
+        cells = editImage.getBrightnessGrid(resolution * Math.min(2048 / resolution, ShapeLookupTable.CELLS));
+        char[] chars = new char[charsetSize];
+        System.arraycopy(SyntheticImages.allChars(), 95 - charsetSize, chars, 0, charsetSize);
+        charMatcher = new SubImgCharMatcher(chars);
+        charMatcher.snapshot().getShapeTable();
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public char[][] sequential() {
+        return new AsciiArtAlgorithm(editImage, resolution, charMatcher).run();
+    }
+
+    @Benchmark
+    public char[][] parallel() {
+        return new AsciiArtAlgorithm(editImage, resolution, charMatcher, pool).run();
+    }
+
+    @Benchmark
+    public char[][] shapeSequential() {
+        return new AsciiArtAlgorithm(editImage.getBrightnessGrid(), cells, resolution, charMatcher, null).run();
+    }
+
+    @Benchmark
+    public char[][] shapeParallel() {
+        return new AsciiArtAlgorithm(editImage.getBrightnessGrid(), cells, resolution, charMatcher, pool).run();
+    }
+}
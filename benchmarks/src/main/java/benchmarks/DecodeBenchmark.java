@@ -0,0 +1,53 @@
+package benchmarks;
+
+import image.Image;
+import image.ImageBandReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading an image file into an Image, against computing the tile brightness of the
+ * same file row by row without decoding it whole, as the stream command does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class DecodeBenchmark {
+    @Param({"256", "1024", "2048", "4096", "8192"})
+    public int size;
+
+    @Param({"png", "jpeg"})
+    public String format;
+
+    private static final int STREAM_RESOLUTION = 128;
+
+    private String path;
+
+    @Setup
+    public void setup() throws IOException {
+        path = SyntheticImages.write(SyntheticImages.create(size, size), format);
+    }
+
+    @Benchmark
+    public Image decode() throws IOException {
+        return new Image(path);
+    }
+
+    @Benchmark
+    public double streamed() throws IOException {
+        double[] total = new double[1];
+        try (ImageBandReader reader = new ImageBandReader(path)) {
+            reader.readTileRows(reader.getPaddedWidth() / STREAM_RESOLUTION, (brightness, row) -> {
+                for (double value : brightness) {
+                    total[0] += value;
+                }
+            });
+        }
+        return total[0];
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import image.EditImage;
+import image.Image;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading an image of the same size as the current one, when only a square region of
+ * it changed: recomputing only the changed tiles against editing the whole image again.
+ * The incremental cost should follow the changed area, the full one the image area.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class DirtyRegionBenchmark {
+    @Param({"2048", "4096"})
+    public int size;
+
+    @Param({"0", "1", "10", "100"})
+    public int changedPercent;
+
+    @Param({"256"})
+    public int resolution;
+
+    private Image[] images;
+    private int next;
+    private EditImage editImage;
+
+    @Setup
+    public void setup() throws IOException {
+        Image base = SyntheticImages.create(size - 1, size - 1);
+        int width = base.getWidth();
+        int height = base.getHeight();
+        int side = (int) Math.round(Math.sqrt(changedPercent / 100.0) * width);
+        // Two images differing in a centered square, loaded alternately.
+        int[] changed = base.getRaster().clone();
+        int from = (width - side) / 2;
+        for (int row = from; row < from + side; row++) {
+            for (int col = from; col < from + side; col++) {
+                changed[row * width + col] ^= 0x7f7f7f;
+            }
+        }
+        images = new Image[] {base, new Image(changed, width, height)};
+        editImage = new EditImage(base, resolution);
+    }
+
+    @Benchmark
+    public int incremental() {
+        next ^= 1;
+        return editImage.updateImage(images[next]);
+    }
+
+    @Benchmark
+    public EditImage full() throws IOException {
+        next ^= 1;
+        return new EditImage(images[next], resolution);
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import image.BrightnessGrid;
+import image.EditImage;
+import image.Image;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the EditImage stages: padding and building the brightness tables of a new
+ * image, building the brightness pyramid of every resolution on the first resolution
+ * change, changing the resolution of an image whose pyramid is built, and slicing the
+ * image itself without padding in fractional tiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class EditImageBenchmark {
+    @Param({"256", "1024", "2048", "4096", "8192"})
+    public int size;
+
+    @Param({"64", "256"})
+    public int resolution;
+
+    private Image image;
+    private EditImage editImage;
+
+    @Setup
+    public void setup() throws IOException {
+        // One pixel short of a power of two in each direction, so padding is exercised.
+        image = SyntheticImages.create(size - 1, size - 1);
+        editImage = new EditImage(image, resolution);
+        editImage.setResolution(resolution);
+    }
+
+    @Benchmark
+    public EditImage pad() throws IOException {
+        return new EditImage(image, resolution);
+    }
+
+    @Benchmark
+    public BrightnessGrid pyramid() throws IOException {
+        EditImage fresh = new EditImage(image, resolution);
+        fresh.setResolution(resolution);
+        return fresh.getBrightnessGrid();
+    }
+
+    @Benchmark
+    public BrightnessGrid sliceAndBrightness() {
+        editImage.setResolution(resolution);
+        return editImage.getBrightnessGrid();
+    }
+
+    @Benchmark
+    public BrightnessGrid fitted() {
+        editImage.setFittedResolution(resolution);
+        return editImage.getBrightnessGrid();
+    }
+}
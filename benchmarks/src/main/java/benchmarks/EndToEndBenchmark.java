@@ -0,0 +1,50 @@
+package benchmarks;
+
+import ascii_art.AsciiArtAlgorithm;
+import ascii_output.HtmlAsciiOutput;
+import image.EditImage;
+import image.Image;
+import image_char_matching.SubImgCharMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the whole pipeline, from an image file to an HTML file, the way the
+ * asciiArt command runs it. Use -prof gc to see the allocation rate of each size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class EndToEndBenchmark {
+    @Param({"256", "1024", "2048", "4096", "8192"})
+    public int size;
+
+    @Param({"128", "256"})
+    public int resolution;
+
+    private String path;
+    private SubImgCharMatcher charMatcher;
+    private HtmlAsciiOutput output;
+
+    @Setup
+    public void setup() throws IOException {
+        path = SyntheticImages.write(SyntheticImages.create(size, size), "png");
+        charMatcher = new SubImgCharMatcher(SyntheticImages.allChars());
+        File file = File.createTempFile("ascii_art_bench", ".html");
+        file.deleteOnExit();
+        output = new HtmlAsciiOutput(file.getPath(), "Courier New");
+    }
+
+    @Benchmark
+    public void imageToHtml() throws IOException {
+        Image image = new Image(path);
+        EditImage editImage = new EditImage(image, resolution);
+        output.out(new AsciiArtAlgorithm(editImage, resolution, charMatcher).run());
+    }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+import ascii_output.AsciiOutput;
+import ascii_output.HtmlAsciiOutput;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original HTML writer with the current one, plain and gzip-compressed,
+ * re-writing the sample outputs checked in at the root of the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class HtmlOutputBenchmark {
+    @Param({"out_256.html", "out_512.html"})
+    public String sample;
+
+    @Param({"legacy", "current", "gzip"})
+    public String writer;
+
+    private char[][] chars;
+    private AsciiOutput output;
+
+    @Setup
+    public void setup() throws IOException {
+        chars = readSample(sample);
+        String suffix = writer.equals("gzip") ? ".html.gz" : ".html";
+        File file = File.createTempFile("ascii_art_bench", suffix);
+        file.deleteOnExit();
+        output = writer.equals("legacy") ? new LegacyHtmlAsciiOutput(file.getPath(), "Courier New")
+                : new HtmlAsciiOutput(file.getPath(), "Courier New");
+    }
+
+    @Benchmark
+    public void write() {
+        output.out(chars);
+    }
+
+    private static char[][] readSample(String sample) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(sample), StandardCharsets.UTF_8);
+        List<char[]> rows = new ArrayList<>();
+        boolean inArt = false;
+        for (String line : lines) {
+            if (line.startsWith("</p>")) {
+                break;
+            }
+            if (inArt) {
+                rows.add(line.replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&")
+                        .toCharArray());
+            }
+            inArt |= line.startsWith("<p ");
+        }
+        return rows.toArray(new char[0][]);
+    }
+}
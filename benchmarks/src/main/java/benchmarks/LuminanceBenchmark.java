@@ -0,0 +1,65 @@
+package benchmarks;
+
+import image.Image;
+import image.LuminanceKernel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the vectorized luminance kernel with the scalar one, on the two passes that use it:
+ * summing the pixels of every tile of a row band, and computing the luminance of whole rows
+ * before their running sums. The fork adds the jdk.incubator.vector module, without it both
+ * kernels are scalar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true", "--add-modules", "jdk.incubator.vector"})
+public class LuminanceBenchmark {
+    @Param({"1024", "4096"})
+    public int size;
+
+    @Param({"16", "128"})
+    public int tileSize;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private int[] pixels;
+    private int[] rowLuminance;
+    private LuminanceKernel luminanceKernel;
+
+    @Setup
+    public void setup() {
+        Image image = SyntheticImages.create(size, size);
+        pixels = image.getRaster();
+        rowLuminance = new int[size];
+        luminanceKernel = kernel.equals("vector") ? LuminanceKernel.get() : LuminanceKernel.scalar();
+        if (kernel.equals("vector") && !luminanceKernel.isVectorized()) {
+            throw new IllegalStateException("The Vector API is not available");
+        }
+    }
+
+    @Benchmark
+    public long tileSums() {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            int index = row * size;
+            for (int col = 0; col < size; col += tileSize) {
+                total += luminanceKernel.sum(pixels, index + col, index + col + tileSize);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int[] rowLuminance() {
+        for (int row = 0; row < size; row++) {
+            luminanceKernel.luminance(pixels, row * size, rowLuminance, size);
+        }
+        return rowLuminance;
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import ascii_output.ConsoleAsciiOutput;
+import ascii_output.HtmlAsciiOutput;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a rendered ASCII art to an HTML file and to the console.
+ * The console is redirected to a stream that discards its input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true"})
+public class OutputBenchmark {
+    @Param({"128", "512", "1024"})
+    public int resolution;
+
+    private char[][] chars;
+    private HtmlAsciiOutput htmlOutput;
+    private ConsoleAsciiOutput consoleOutput;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() throws IOException {
+        chars = SyntheticImages.chars(resolution, resolution);
+        File file = File.createTempFile("ascii_art_bench", ".html");
+        file.deleteOnExit();
+        htmlOutput = new HtmlAsciiOutput(file.getPath(), "Courier New");
+        consoleOutput = new ConsoleAsciiOutput();
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream(), true));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void html() {
+        htmlOutput.out(chars);
+    }
+
+    @Benchmark
+    public void console() {
+        consoleOutput.out(chars);
+    }
+}
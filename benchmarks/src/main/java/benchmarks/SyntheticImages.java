@@ -0,0 +1,90 @@
+package benchmarks;
+
+import image.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates deterministic test images in-process, so the benchmarks run offline.
+ */
+final class SyntheticImages {
+    private SyntheticImages() {}
+
+    /**
+     * Creates an image with smooth gradients, a few hard edges and some noise, so that
+     * every brightness band and every character of a charset is exercised.
+     * @param width The image width.
+     * @param height The image height.
+     * @return The generated image.
+     */
+    static Image create(int width, int height) {
+        Random random = new Random(width * 31L + height);
+        int[] pixels = new int[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int r = col * 255 / width;
+                int g = row * 255 / height;
+                int b = ((row / 32 + col / 32) & 1) == 0 ? 40 : 220;
+                int noise = random.nextInt(32) - 16;
+                pixels[row * width + col] = (clamp(r + noise) << 16) | (clamp(g + noise) << 8)
+                        | clamp(b + noise);
+            }
+        }
+        return new Image(pixels, width, height);
+    }
+
+    /**
+     * Writes an image to a temporary file that is deleted on exit.
+     * @param image The image to write.
+     * @param format The ImageIO format name, "png" or "jpeg".
+     * @return The path of the written file.
+     * @throws IOException If the file can not be written.
+     */
+    static String write(Image image, String format) throws IOException {
+        BufferedImage bufferedImage = new BufferedImage(image.getWidth(), image.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        bufferedImage.setRGB(0, 0, image.getWidth(), image.getHeight(),
+                image.getRaster(), image.getOffset(), image.getStride());
+        File file = File.createTempFile("ascii_art_bench", "." + format);
+        file.deleteOnExit();
+        ImageIO.write(bufferedImage, format, file);
+        return file.getPath();
+    }
+
+    /**
+     * Creates a char[][] of random printable characters, the shape of a rendered ASCII art.
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return The generated characters.
+     */
+    static char[][] chars(int rows, int cols) {
+        Random random = new Random(rows * 31L + cols);
+        char[][] chars = new char[rows][cols];
+        for (char[] row : chars) {
+            for (int col = 0; col < cols; col++) {
+                row[col] = (char) (32 + random.nextInt(95));
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Returns every printable ASCII character.
+     * @return The characters from space to tilde.
+     */
+    static char[] allChars() {
+        char[] chars = new char[95];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (32 + i);
+        }
+        return chars;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -5,16 +5,27 @@
 package ascii_art;
 
 import image.EditImage;
-import image.Image;
+import image.BrightnessGrid;
+import image_char_matching.CharLookupTable;
+import image_char_matching.CharsetSnapshot;
+import image_char_matching.ShapeLookupTable;
 import image_char_matching.SubImgCharMatcher;
-import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 /**
  * This class generates ASCII art from images.
  */
 public class AsciiArtAlgorithm {
+    private static final int ROWS_PER_TASK = 8;
     private SubImgCharMatcher charMatcher;
-    private EditImage editImage;
+    private BrightnessGrid grid;
+    private BrightnessGrid cells;
     private int resolution;
+    private ForkJoinPool pool;
+    private CharLookupTable lastTable;
+    private char[][] lastArt;
+    private int[] bucketStart;
+    private int[] tilesByBucket;
 
     /**
      * Constructs an AsciiArtAlgorithm object with the provided image, edited image,
@@ -24,34 +35,203 @@ public class AsciiArtAlgorithm {
      * @param charMatcher The SubImgCharMatcher object for character matching.
      */
     public AsciiArtAlgorithm(EditImage editImage, int resolution, SubImgCharMatcher charMatcher){
+        this(editImage, resolution, charMatcher, null);
+    }
+
+    /**
+     * Constructs an AsciiArtAlgorithm object that renders row bands of the image in parallel.
+     * The output is identical to the sequential one.
+     * @param editImage The edited EditImage object.
+     * @param resolution An int representing the resolution of the ASCII art.
+     * @param charMatcher The SubImgCharMatcher object for character matching.
+     * @param pool The ForkJoinPool to render on, or null to render sequentially.
+     */
+    public AsciiArtAlgorithm(EditImage editImage, int resolution, SubImgCharMatcher charMatcher,
+                             ForkJoinPool pool){
+        this(editImage.getBrightnessGrid(), resolution, charMatcher, pool);
+    }
+
+    /**
+     * Constructs an AsciiArtAlgorithm object over an already computed brightness grid.
+     * @param grid The BrightnessGrid of the image in the given resolution.
+     * @param resolution An int representing the resolution of the ASCII art.
+     * @param charMatcher The SubImgCharMatcher object for character matching.
+     * @param pool The ForkJoinPool to render on, or null to render sequentially.
+     */
+    public AsciiArtAlgorithm(BrightnessGrid grid, int resolution, SubImgCharMatcher charMatcher,
+                             ForkJoinPool pool){
+        this(grid, null, resolution, charMatcher, pool);
+    }
+
+    /**
+     * Constructs an AsciiArtAlgorithm object that matches tiles to characters by shape, from
+     * the brightness of the cells the tiles are divided into.
+     * @param grid The BrightnessGrid of the image in the given resolution.
+     * @param cells The BrightnessGrid of the image in a resolution up to ShapeLookupTable.CELLS
+     *              times finer, or null to match by brightness only.
+     * @param resolution An int representing the resolution of the ASCII art.
+     * @param charMatcher The SubImgCharMatcher object for character matching.
+     * @param pool The ForkJoinPool to render on, or null to render sequentially.
+     */
+    public AsciiArtAlgorithm(BrightnessGrid grid, BrightnessGrid cells, int resolution,
+                             SubImgCharMatcher charMatcher, ForkJoinPool pool){
         this.charMatcher = charMatcher;
         this.resolution = resolution;
-        this.editImage = editImage;
+        this.grid = grid;
+        this.cells = cells;
+        this.pool = pool;
     }
 
     /**
      * Generates ASCII art from the image.
+     * When called again after the charset of the matcher changed, only the tiles whose
+     * character may have changed are matched again, the rest is copied from the last result.
      * @return A 2D array of char representing the ASCII art.
      */
     public char [][] run(){
-        LinkedHashMap<Image, Double> slicedImages = editImage.getSubImages();
-        int imageHeight = editImage.getPaddImage().getHeight();
-        int imageWidth = editImage.getPaddImage().getWidth();
-        int rows = imageHeight/(imageWidth/resolution);
-        char[][] asciiImage = new char[rows][resolution];
-        int row = 0;
-        int col = 0;
-        for (Map.Entry<Image,Double> slice : slicedImages.entrySet()){
-            if(col < resolution){
-                asciiImage[row][col] = charMatcher.getCharByImageBrightness(slice.getValue());
-                col++;
+        return run(charMatcher.snapshot());
+    }
+
+    /**
+     * Generates ASCII art from the image with a given charset of the matcher, so that the
+     * characters of every tile come from the same charset even if the matcher changes meanwhile.
+     * @param charset The CharsetSnapshot to match the tiles with.
+     * @return A 2D array of char representing the ASCII art.
+     */
+    public char [][] run(CharsetSnapshot charset){
+        if (cells != null) {
+            // Shape matching does not map buckets to characters, every tile is matched again.
+            char[][] art = new char[grid.getRows()][resolution];
+            ShapeLookupTable shapes = charset.getShapeTable();
+            if (pool != null && pool.getParallelism() > 1) {
+                pool.invoke(new RowBandTask(null, shapes, art, 0, art.length));
+            } else {
+                matchShapeRows(shapes, art, 0, art.length);
+            }
+            return art;
+        }
+        CharLookupTable table = charset.getLookupTable();
+        if (lastArt != null && table.getMin() == lastTable.getMin()
+                && table.getMax() == lastTable.getMax()) {
+            lastArt = update(table);
+        } else {
+            lastArt = new char[grid.getRows()][resolution];
+            if (pool != null && pool.getParallelism() > 1) {
+                pool.invoke(new RowBandTask(table, null, lastArt, 0, lastArt.length));
             } else {
-                col = 0;
-                row++;
-                asciiImage[row][col] = charMatcher.getCharByImageBrightness(slice.getValue());
-                col++;
+                matchRows(table, lastArt, 0, lastArt.length);
+            }
+        }
+        lastTable = table;
+        return lastArt;
+    }
+
+    private char[][] update(CharLookupTable table){
+        char[][] asciiImage = new char[lastArt.length][];
+        for (int row = 0; row < asciiImage.length; row++) {
+            asciiImage[row] = lastArt[row].clone();
+        }
+        if (bucketStart == null) {
+            indexTilesByBucket();
+        }
+        for (int bucket = 0; bucket <= CharLookupTable.BUCKETS; bucket++) {
+            char c = table.getBucket(bucket);
+            if (c != CharLookupTable.AMBIGUOUS && c == lastTable.getBucket(bucket)) {
+                continue;
+            }
+            for (int i = bucketStart[bucket]; i < bucketStart[bucket + 1]; i++) {
+                int row = tilesByBucket[i] / resolution;
+                int col = tilesByBucket[i] % resolution;
+                asciiImage[row][col] = table.getChar(grid.get(row, col));
             }
         }
         return asciiImage;
     }
+
+    private void indexTilesByBucket(){
+        // Counting sort of the tiles by lookup table bucket, so the tiles of a bucket
+        // whose character changed are found without scanning the grid.
+        int tiles = grid.getRows() * resolution;
+        bucketStart = new int[CharLookupTable.BUCKETS + 2];
+        tilesByBucket = new int[tiles];
+        int[] tileBucket = new int[tiles];
+        for (int tile = 0; tile < tiles; tile++) {
+            tileBucket[tile] = bucketOf(grid.get(tile / resolution, tile % resolution));
+            bucketStart[tileBucket[tile] + 1]++;
+        }
+        for (int bucket = 0; bucket <= CharLookupTable.BUCKETS; bucket++) {
+            bucketStart[bucket + 1] += bucketStart[bucket];
+        }
+        int[] next = bucketStart.clone();
+        for (int tile = 0; tile < tiles; tile++) {
+            tilesByBucket[next[tileBucket[tile]]++] = tile;
+        }
+    }
+
+    private static int bucketOf(double brightness){
+        return (int) (Math.min(Math.max(brightness, 0), 1) * CharLookupTable.BUCKETS);
+    }
+
+    private void matchRows(CharLookupTable table, char[][] asciiImage, int fromRow, int toRow){
+        for (int row = fromRow; row < toRow; row++) {
+            char[] line = asciiImage[row];
+            for (int col = 0; col < line.length; col++) {
+                line[col] = table.getChar(grid.get(row, col));
+            }
+        }
+    }
+
+    private void matchShapeRows(ShapeLookupTable shapes, char[][] asciiImage, int fromRow, int toRow){
+        int cellsPerTile = cells.getCols() / resolution;
+        double[] tileCells = new double[cellsPerTile * cellsPerTile];
+        for (int row = fromRow; row < toRow; row++) {
+            char[] line = asciiImage[row];
+            for (int col = 0; col < line.length; col++) {
+                int cell = 0;
+                for (int y = row * cellsPerTile; y < (row + 1) * cellsPerTile; y++) {
+                    for (int x = col * cellsPerTile; x < (col + 1) * cellsPerTile; x++) {
+                        tileCells[cell++] = cells.get(y, x);
+                    }
+                }
+                double brightness = grid.get(row, col);
+                line[col] = shapes.getChar(brightness, ShapeLookupTable.tileMask(tileCells, cellsPerTile, brightness));
+            }
+        }
+    }
+
+    /**
+     * Matches the characters of every tile in a band of rows, by shape if given a shape table,
+     * splitting the band in two while it is larger than ROWS_PER_TASK.
+     */
+    private class RowBandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CharLookupTable table;
+        private final ShapeLookupTable shapes;
+        private final char[][] asciiImage;
+        private final int fromRow;
+        private final int toRow;
+
+        RowBandTask(CharLookupTable table, ShapeLookupTable shapes, char[][] asciiImage, int fromRow, int toRow){
+            this.table = table;
+            this.shapes = shapes;
+            this.asciiImage = asciiImage;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute(){
+            if (toRow - fromRow > ROWS_PER_TASK) {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new RowBandTask(table, shapes, asciiImage, fromRow, middle),
+                        new RowBandTask(table, shapes, asciiImage, middle, toRow));
+                return;
+            }
+            if (shapes != null) {
+                matchShapeRows(shapes, asciiImage, fromRow, toRow);
+            } else {
+                matchRows(table, asciiImage, fromRow, toRow);
+            }
+        }
+    }
 }
@@ -0,0 +1,276 @@
+/**
+ * The ascii_art package contains classes related to generating ASCII art from images.
+ * It includes algorithms for converting images into ASCII representations.
+ */
+package ascii_art;
+
+import ascii_output.ConsoleAsciiOutput;
+import ascii_output.HtmlAsciiOutput;
+import image.EditImage;
+import image.Image;
+import image_char_matching.CharsetSnapshot;
+import image_char_matching.SubImgCharMatcher;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The BatchConverter class converts many image files to ASCII art without user interaction.
+ * Files are decoded and written on an I/O thread pool and rendered on a CPU thread pool,
+ * with a bounded number of files in flight. All files share a single character matcher.
+ * It is started with: Shell --batch &lt;dir|list file&gt; [--res N] [--chars C]... [--out html|console]
+ * [--out-dir DIR] [--threads N] [--io-threads N].
+ */
+class BatchConverter {
+    private static final double NANOS_PER_MILLI = 1e6;
+    private final List<String> files;
+    private final int resolution;
+    private final SubImgCharMatcher charMatcher;
+    private final String outputType;
+    private final String outputDir;
+    private final int cpuThreads;
+    private final int ioThreads;
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private BatchConverter(List<String> files, int resolution, SubImgCharMatcher charMatcher,
+                           String outputType, String outputDir, int cpuThreads, int ioThreads) {
+        this.files = files;
+        this.resolution = resolution;
+        this.charMatcher = charMatcher;
+        this.outputType = outputType;
+        this.outputDir = outputDir;
+        this.cpuThreads = cpuThreads;
+        this.ioThreads = ioThreads;
+    }
+
+    /**
+     * Parses the batch command-line arguments.
+     * @param args The command-line arguments, starting with --batch.
+     * @return A BatchConverter configured by the arguments.
+     * @throws IllegalArgumentException If the arguments are incorrect.
+     * @throws IOException If the list of files can not be read.
+     */
+    static BatchConverter fromArgs(String[] args) throws IllegalArgumentException, IOException {
+        List<String> files = null;
+        int resolution = Constant.DEFAULT_RESOLUTION;
+        TreeSet<Character> chars = new TreeSet<>();
+        String outputType = Constant.HTML_OUTPUT;
+        String outputDir = Constant.BATCH_OUTPUT_DIR;
+        int cpuThreads = Runtime.getRuntime().availableProcessors();
+        int ioThreads = 2 * cpuThreads;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException();
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case Constant.BATCH_OPTION:
+                    files = listFiles(value);
+                    break;
+                case Constant.RES_OPTION:
+                    resolution = Integer.parseInt(value);
+                    break;
+                case Constant.CHARS_OPTION:
+                    addChars(chars, value);
+                    break;
+                case Constant.OUT_OPTION:
+                    if (!value.equals(Constant.HTML_OUTPUT) && !value.equals(Constant.CONSOLE_OUTPUT)) {
+                        throw new IllegalArgumentException();
+                    }
+                    outputType = value;
+                    break;
+                case Constant.OUT_DIR_OPTION:
+                    outputDir = value;
+                    break;
+                case Constant.THREADS_OPTION:
+                    cpuThreads = Integer.parseInt(value);
+                    break;
+                case Constant.IO_THREADS_OPTION:
+                    ioThreads = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+        if (files == null || resolution < 1 || cpuThreads < 1 || ioThreads < 1) {
+            throw new IllegalArgumentException();
+        }
+        return new BatchConverter(files, resolution, new SubImgCharMatcher(toCharset(chars)),
+                outputType, outputDir, cpuThreads, ioThreads);
+    }
+
+    /**
+     * Converts all the files, printing the time of each one and the total throughput.
+     */
+    void run() {
+        if (outputType.equals(Constant.HTML_OUTPUT)) {
+            new File(outputDir).mkdirs();
+        }
+        // Every file is rendered with the same charset, shared by the render threads.
+        CharsetSnapshot charset = charMatcher.snapshot();
+        ExecutorService ioPool = Executors.newFixedThreadPool(ioThreads);
+        ExecutorService cpuPool = Executors.newFixedThreadPool(cpuThreads);
+        Semaphore inFlight = new Semaphore(ioThreads + 2 * cpuThreads);
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(files.size());
+        try {
+            for (String file : files) {
+                inFlight.acquireUninterruptibly();
+                tasks.add(convert(file, charset, ioPool, cpuPool).whenComplete((v, e) -> inFlight.release()));
+            }
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            ioPool.shutdown();
+            cpuPool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / (NANOS_PER_MILLI * 1000);
+        System.out.println(String.format(Constant.BATCH_SUMMARY_SYNTAX, files.size() - failed.get(),
+                failed.get(), seconds, (files.size() - failed.get()) / seconds));
+    }
+
+    private CompletableFuture<Void> convert(String file, CharsetSnapshot charset, ExecutorService ioPool,
+                                            ExecutorService cpuPool) {
+        long start = System.nanoTime();
+        // Every stage is timed from when it starts running, the rest of the time is spent queued.
+        long[] decodeTime = new long[1];
+        long[] renderTime = new long[1];
+        return CompletableFuture.supplyAsync(() -> {
+            long stageStart = System.nanoTime();
+            Image image = decode(file);
+            decodeTime[0] = System.nanoTime() - stageStart;
+            return image;
+        }, ioPool).thenApplyAsync(image -> {
+            long stageStart = System.nanoTime();
+            char[][] art = render(image, charset);
+            renderTime[0] = System.nanoTime() - stageStart;
+            return art;
+        }, cpuPool).thenAcceptAsync(art -> {
+            long stageStart = System.nanoTime();
+            write(file, art);
+            long end = System.nanoTime();
+            long writeTime = end - stageStart;
+            long queued = end - start - decodeTime[0] - renderTime[0] - writeTime;
+            System.out.println(String.format(Constant.BATCH_FILE_SYNTAX, file, (end - start) / NANOS_PER_MILLI,
+                    decodeTime[0] / NANOS_PER_MILLI, renderTime[0] / NANOS_PER_MILLI,
+                    writeTime / NANOS_PER_MILLI, queued / NANOS_PER_MILLI));
+        }, ioPool).exceptionally(e -> {
+            failed.incrementAndGet();
+            String message = e.getCause() instanceof IllegalStateException ?
+                    Constant.RESOLUTION_BOUNDARIES_ERROR : Constant.IMAGE_ERROR;
+            System.out.println(file + ": " + message);
+            return null;
+        });
+    }
+
+    private static Image decode(String file) {
+        try {
+            return new Image(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private char[][] render(Image image, CharsetSnapshot charset) {
+        EditImage editImage = new EditImage(image);
+        int maxRes = editImage.getPaddImage().getWidth();
+        int minRes = Math.max(maxRes / editImage.getPaddImage().getHeight(), 1);
+        if (resolution < minRes || resolution > maxRes || Integer.bitCount(resolution) != 1) {
+            throw new IllegalStateException();
+        }
+        editImage.setResolution(resolution);
+        return new AsciiArtAlgorithm(editImage, resolution, charMatcher).run(charset);
+    }
+
+    private void write(String file, char[][] art) {
+        if (outputType.equals(Constant.CONSOLE_OUTPUT)) {
+            synchronized (System.out) {
+                new ConsoleAsciiOutput().out(art);
+            }
+            return;
+        }
+        String name = new File(file).getName();
+        int dot = name.lastIndexOf('.');
+        name = (dot > 0 ? name.substring(0, dot) : name) + Constant.HTML_EXTENSION;
+        new HtmlAsciiOutput(new File(outputDir, name).getPath(), Constant.HTML_FONT).out(art);
+    }
+
+    private static List<String> listFiles(String source) throws IOException {
+        File file = new File(source);
+        List<String> files = new ArrayList<>();
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    if (child.isFile() && isImage(child.getName())) {
+                        files.add(child.getPath());
+                    }
+                }
+            }
+        } else {
+            for (String line : Files.readAllLines(Paths.get(source))) {
+                if (!line.trim().isEmpty()) {
+                    files.add(line.trim());
+                }
+            }
+        }
+        return files;
+    }
+
+    private static boolean isImage(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(Constant.IMAGE_PNG) || lower.endsWith(Constant.IMAGE_JPEG)
+                || lower.endsWith(Constant.IMAGE_JPG);
+    }
+
+    /**
+     * Adds the characters of a --chars value, given in the format of the add command.
+     * @param chars The set of characters to add to.
+     * @param value The value of the option.
+     * @throws IllegalArgumentException If the value is in an incorrect format.
+     */
+    static void addChars(TreeSet<Character> chars, String value) throws IllegalArgumentException {
+        if (value.length() == 1) {
+            chars.add(value.charAt(0));
+        } else if (value.equals(Constant.ALL)) {
+            addSequence(chars, Constant.SPACE_CHAR, Constant.TILDA);
+        } else if (value.equals(Constant.SPACE_WORD)) {
+            chars.add(Constant.SPACE_CHAR);
+        } else if (value.contains(Constant.HYPHEN) && value.length() == Constant.INPUT_LEN) {
+            addSequence(chars, (char) Math.min(value.charAt(0), value.charAt(2)),
+                    (char) Math.max(value.charAt(0), value.charAt(2)));
+        } else {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Returns the charset of the --chars options, the default one if none was given.
+     * @param chars The characters of the --chars options.
+     * @return An array of the characters.
+     */
+    static char[] toCharset(TreeSet<Character> chars) {
+        char[] charset = chars.isEmpty() ? Constant.DEFAULT_CHARS_ARRAY : new char[chars.size()];
+        int index = 0;
+        for (char c : chars) {
+            charset[index++] = c;
+        }
+        return charset;
+    }
+
+    private static void addSequence(TreeSet<Character> chars, char start, char end) {
+        for (char i = start; i <= end; i++) {
+            chars.add(i);
+        }
+    }
+}
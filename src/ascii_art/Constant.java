@@ -24,6 +24,16 @@ public class Constant {
      */
     final static String IMAGE_JPEG = ".jpeg";
 
+    /**
+     * The short file extension for JPEG images.
+     */
+    final static String IMAGE_JPG = ".jpg";
+
+    /**
+     * The file extension of HTML output files.
+     */
+    final static String HTML_EXTENSION = ".html";
+
     /**
      * Command string for increasing resolution.
      */
@@ -69,6 +79,33 @@ public class Constant {
      */
     final static String RESOLUTION_PRINT_SYNTAX = "Resolution set to %d.";
 
+    /**
+     * Syntax for printing the number of render threads.
+     */
+    final static String THREADS_PRINT_SYNTAX = "Threads set to %d.";
+
+    /**
+     * Syntax for printing the character matching mode.
+     */
+    final static String MATCH_PRINT_SYNTAX = "Matching by %s.";
+
+    /**
+     * Syntax for printing the render cache statistics.
+     */
+    final static String CACHE_PRINT_SYNTAX = "Grids: %d cached (%d bytes), %d hits, %d misses.%n" +
+            "Ascii art: %d cached (%d bytes), %d hits, %d misses.";
+
+    /**
+     * Syntax for printing the time it took to convert one file in batch mode.
+     */
+    final static String BATCH_FILE_SYNTAX = "%s: %.1f ms (decode %.1f ms, render %.1f ms, write %.1f ms, " +
+            "queued %.1f ms)";
+
+    /**
+     * Syntax for printing the batch mode summary.
+     */
+    final static String BATCH_SUMMARY_SYNTAX = "Converted %d files, %d failed, in %.2f s (%.1f files/s).";
+
     /**
      * Arrow symbol used in command line interface.
      */
@@ -100,6 +137,84 @@ public class Constant {
     final static String RESOLUTION_BOUNDARIES_ERROR = "Did not change resolution due to" +
             " exceeding boundaries.";
 
+    /**
+     * Error message for incorrect threads command format.
+     */
+    final static String THREADS_FORMAT_ERROR = "Did not change threads due to incorrect format.";
+
+    /**
+     * Error message for incorrect match command format.
+     */
+    final static String MATCH_FORMAT_ERROR = "Did not change matching due to incorrect format.";
+
+    /**
+     * Syntax for printing the header of the pipeline statistics.
+     */
+    final static String STATS_HEADER = "Renders: %d%n" +
+            "stage    count   total ms   mean ms   p50 ms    p99 ms    max ms    alloc MB   tiles/s";
+
+    /**
+     * Syntax for printing the statistics of one pipeline stage.
+     */
+    final static String STATS_ROW_SYNTAX = "%-8s %5d %10.2f %9.3f %9.3f %9.3f %9.3f %10.2f %9.0f";
+
+    /**
+     * Message printed by the stats command while the statistics are disabled.
+     */
+    final static String STATS_DISABLED = "Statistics are disabled, enable them with 'stats on'.";
+
+    /**
+     * Error message for incorrect stats command format.
+     */
+    final static String STATS_FORMAT_ERROR = "Did not change statistics due to incorrect format.";
+
+    /**
+     * Syntax for printing the video mode summary.
+     */
+    final static String VIDEO_SUMMARY_SYNTAX = "Rendered %d frames in %.2f s (%.1f fps).";
+
+    /**
+     * Error message for incorrect video mode arguments.
+     */
+    final static String VIDEO_ARGS_ERROR = "Did not execute due to incorrect arguments. Usage: " +
+            "--video <dir|-> [--size WxH] [--res N] [--chars C]... [--fps F] " +
+            "[--out console|delta-console|html|text|delta] [--out-file FILE] [--keyframe N]";
+
+    /**
+     * Error message for incorrect batch mode arguments.
+     */
+    final static String BATCH_ARGS_ERROR = "Did not execute due to incorrect arguments. Usage: " +
+            "--batch <dir|list file> [--res N] [--chars C]... [--out html|console] [--out-dir DIR] " +
+            "[--threads N] [--io-threads N]";
+
+    /**
+     * Error message for incorrect server mode arguments.
+     */
+    final static String SERVE_ARGS_ERROR = "Did not execute due to incorrect arguments. Usage: " +
+            "--serve <port> [--res N] [--chars C]... [--threads N] [--queue N]";
+
+    /**
+     * Error message for a server that can not listen on its port.
+     */
+    final static String SERVER_ERROR = "Did not start the server due to a problem opening the port.";
+
+    /**
+     * Syntax for printing the address of a started server.
+     */
+    final static String SERVER_STARTED_SYNTAX = "Serving on http://localhost:%d (%d render threads, " +
+            "%d queued requests).";
+
+    /**
+     * Response of a server that has as many requests in progress as it accepts.
+     */
+    final static String SERVER_BUSY = "Too many requests in progress, retry later.";
+
+    /**
+     * Syntax of the server metrics, as a JSON object.
+     */
+    final static String METRICS_SYNTAX = "{\"requests\":%d,\"rendered\":%d,\"failed\":%d,\"rejected\":%d," +
+            "\"in_flight\":%d,\"latency_ms\":{\"p50\":%.3f,\"p90\":%.3f,\"p99\":%.3f,\"max\":%.3f}}";
+
     /**
      * Error message for problem with image file.
      */
@@ -130,6 +245,16 @@ public class Constant {
      */
     final static char[] DEFAULT_CHARS_ARRAY = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
 
+    /**
+     * Approximate number of bytes the render cache may take.
+     */
+    final static long RENDER_CACHE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Default output directory of the batch mode.
+     */
+    final static String BATCH_OUTPUT_DIR = "out";
+
     /**
      * Output format for console.
      */
@@ -140,6 +265,21 @@ public class Constant {
      */
     final static String HTML_OUTPUT = "html";
 
+    /**
+     * Output format for gzip-compressed HTML.
+     */
+    final static String HTML_GZ_OUTPUT = "html.gz";
+
+    /**
+     * Output format for colored HTML.
+     */
+    final static String COLOR_HTML_OUTPUT = "color-html";
+
+    /**
+     * Output format for colored console output.
+     */
+    final static String COLOR_CONSOLE_OUTPUT = "color-console";
+
     /**
      * Default HTML font.
      */
@@ -150,6 +290,11 @@ public class Constant {
      */
     final static String HTML_OUTPUT_FILE = "out.html";
 
+    /**
+     * Gzip-compressed HTML output file name.
+     */
+    final static String HTML_GZ_OUTPUT_FILE = "out.html.gz";
+
     /**
      * Command name for displaying characters.
      */
@@ -170,6 +315,31 @@ public class Constant {
      */
     final static String RES_COMMAND = "res";
 
+    /**
+     * Command name for changing the number of render threads.
+     */
+    final static String THREADS_COMMAND = "threads";
+
+    /**
+     * Command name for choosing how tiles are matched to characters.
+     */
+    final static String MATCH_COMMAND = "match";
+
+    /**
+     * Match command option matching tiles by brightness only.
+     */
+    final static String MATCH_BRIGHTNESS = "brightness";
+
+    /**
+     * Match command option matching tiles by shape within a brightness band.
+     */
+    final static String MATCH_SHAPE = "shape";
+
+    /**
+     * Command name for displaying the render cache statistics.
+     */
+    final static String CACHE_COMMAND = "cache";
+
     /**
      * Command name for exiting the program.
      */
@@ -185,8 +355,206 @@ public class Constant {
      */
     final static String OUTPUT_COMMAND = "output";
 
+    /**
+     * Command name for generating ASCII art from an image file row by row.
+     */
+    final static String STREAM_COMMAND = "stream";
+
+    /**
+     * Command-line option for the batch mode input directory or list file.
+     */
+    final static String BATCH_OPTION = "--batch";
+
+    /**
+     * Command-line option for the batch mode resolution.
+     */
+    final static String RES_OPTION = "--res";
+
+    /**
+     * Command-line option for the batch mode charset, in the format of the add command.
+     */
+    final static String CHARS_OPTION = "--chars";
+
+    /**
+     * Command-line option for the batch mode output method.
+     */
+    final static String OUT_OPTION = "--out";
+
+    /**
+     * Command-line option for the batch mode output directory.
+     */
+    final static String OUT_DIR_OPTION = "--out-dir";
+
+    /**
+     * Command-line option for the batch mode number of render threads.
+     */
+    final static String THREADS_OPTION = "--threads";
+
+    /**
+     * Command-line option for the batch mode number of file reading and writing threads.
+     */
+    final static String IO_THREADS_OPTION = "--io-threads";
+
+    /**
+     * Command-line option for the video mode frame directory, or "-" for raw RGB frames on stdin.
+     */
+    final static String VIDEO_OPTION = "--video";
+
+    /**
+     * Command-line option for the video mode frame size of raw RGB frames, as WIDTHxHEIGHT.
+     */
+    final static String SIZE_OPTION = "--size";
+
+    /**
+     * Command-line option for the video mode target frames per second, 0 for as fast as possible.
+     */
+    final static String FPS_OPTION = "--fps";
+
+    /**
+     * Command-line option for the video mode output file.
+     */
+    final static String OUT_FILE_OPTION = "--out-file";
+
+    /**
+     * Video mode source reading raw RGB frames from the standard input.
+     */
+    final static String STDIN_SOURCE = "-";
+
+    /**
+     * Separator of the width and height of the --size option.
+     */
+    final static String SIZE_SEPARATOR = "x";
+
+    /**
+     * Output format for a text file.
+     */
+    final static String TEXT_OUTPUT = "text";
+
+    /**
+     * Output format for the console, redrawing only the changed cells of a frame.
+     */
+    final static String DELTA_CONSOLE_OUTPUT = "delta-console";
+
+    /**
+     * Output format for a delta file, recording only the changed cells of a frame.
+     */
+    final static String DELTA_OUTPUT = "delta";
+
+    /**
+     * Command-line option for the video mode number of frames between two keyframes.
+     */
+    final static String KEYFRAME_OPTION = "--keyframe";
+
+    /**
+     * Default video mode number of frames between two keyframes of a delta output.
+     */
+    final static int DEFAULT_KEYFRAME_INTERVAL = 48;
+
+    /**
+     * Default video mode delta output file.
+     */
+    final static String VIDEO_DELTA_FILE = "out/frames.delta";
+
+    /**
+     * Default video mode HTML output file.
+     */
+    final static String VIDEO_HTML_FILE = "out/frames.html";
+
+    /**
+     * Default video mode text output file.
+     */
+    final static String VIDEO_TEXT_FILE = "out/frames.txt";
+
+    /**
+     * Default video mode target frames per second.
+     */
+    final static double DEFAULT_FPS = 24;
+
+    /**
+     * Command name for printing and controlling the pipeline statistics.
+     */
+    final static String STATS_COMMAND = "stats";
+
+    /**
+     * Stats command option enabling the statistics.
+     */
+    final static String STATS_ON = "on";
+
+    /**
+     * Stats command option disabling the statistics.
+     */
+    final static String STATS_OFF = "off";
+
+    /**
+     * Stats command option clearing the statistics.
+     */
+    final static String STATS_RESET = "reset";
+
+    /**
+     * Stats command option dumping the statistics of every render as JSON lines to a file.
+     */
+    final static String STATS_JSON = "json";
+
     /**
      * Command name for generating ASCII art.
      */
     final static String ASCIIART_COMMAND = "asciiArt";
+
+    /**
+     * Command-line option for the server mode port, 0 for any free port.
+     */
+    final static String SERVE_OPTION = "--serve";
+
+    /**
+     * Command-line option for the server mode number of requests waiting for a render thread.
+     */
+    final static String QUEUE_OPTION = "--queue";
+
+    /**
+     * Server path rendering the image in the request body.
+     */
+    final static String RENDER_PATH = "/render";
+
+    /**
+     * Server path reporting the request counts and latency percentiles.
+     */
+    final static String METRICS_PATH = "/metrics";
+
+    /**
+     * Render request parameter for the resolution.
+     */
+    final static String RES_PARAM = "res";
+
+    /**
+     * Render request parameter for the charset, in the format of the add command, repeatable.
+     */
+    final static String CHARS_PARAM = "chars";
+
+    /**
+     * Render request parameter for the output format, text or html.
+     */
+    final static String FORMAT_PARAM = "format";
+
+    /**
+     * The largest image upload the server accepts, in bytes.
+     */
+    final static int MAX_UPLOAD_BYTES = 64 << 20;
+
+    /**
+     * The largest image the server decodes, in pixels, checked against the image header
+     * before decoding, as a small compressed file may declare a huge image.
+     */
+    final static long MAX_UPLOAD_PIXELS = 1L << 25;
+
+    /**
+     * The pixels the server decodes and renders at once, over all the requests in flight.
+     * An image takes about 16 bytes per pixel until its page is rendered, so this bounds that
+     * memory to about 2 GB whatever the number of render threads.
+     */
+    final static int DECODE_PIXEL_BUDGET = 1 << 27;
+
+    /**
+     * Seconds a client should wait before retrying a rejected request.
+     */
+    final static String RETRY_AFTER_SECONDS = "1";
 }
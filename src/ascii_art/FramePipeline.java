@@ -0,0 +1,296 @@
+/**
+ * The ascii_art package contains classes related to generating ASCII art from images.
+ * It includes algorithms for converting images into ASCII representations.
+ */
+package ascii_art;
+
+import ascii_output.AnimatedConsoleAsciiOutput;
+import ascii_output.AsciiFrameOutput;
+import ascii_output.DeltaConsoleAsciiOutput;
+import ascii_output.DeltaFileAsciiOutput;
+import ascii_output.HtmlFramesAsciiOutput;
+import ascii_output.TextFramesAsciiOutput;
+import image.BrightnessGrid;
+import image.EditImage;
+import image.FrameSource;
+import image.Image;
+import image.ImageSequenceSource;
+import image.RawRgbSource;
+import image_char_matching.CharLookupTable;
+import image_char_matching.SubImgCharMatcher;
+import java.io.File;
+import java.io.IOException;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The FramePipeline class converts a sequence of frames to ASCII art, as a video.
+ * Decoding, brightness computation and character matching run on their own threads, each
+ * working on a different frame, while the caller thread outputs frames at the target rate.
+ * Frames travel between the stages in a fixed set of slots holding all the buffers of a frame,
+ * so the pixel, table, grid and art buffers are allocated once for the whole sequence.
+ * It is started with: Shell --video &lt;dir|-&gt; [--size WxH] [--res N] [--chars C]... [--fps F]
+ * [--out console|delta-console|html|text|delta] [--out-file FILE] [--keyframe N].
+ */
+class FramePipeline {
+    private static final int SLOTS = 4;
+    private static final int STAGES = 3;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final Frame END = new Frame();
+    private final FrameSource source;
+    private final int resolution;
+    private final SubImgCharMatcher charMatcher;
+    private final double fps;
+    private final String outputType;
+    private final String outputFile;
+    private final int keyframeInterval;
+    private volatile Exception failure;
+
+    private FramePipeline(FrameSource source, int resolution, SubImgCharMatcher charMatcher, double fps,
+                          String outputType, String outputFile, int keyframeInterval) {
+        this.source = source;
+        this.resolution = resolution;
+        this.charMatcher = charMatcher;
+        this.fps = fps;
+        this.outputType = outputType;
+        this.outputFile = outputFile;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Parses the video command-line arguments.
+     * @param args The command-line arguments, including --video.
+     * @return A FramePipeline configured by the arguments.
+     * @throws IllegalArgumentException If the arguments are incorrect.
+     * @throws IOException If the frames can not be opened.
+     */
+    static FramePipeline fromArgs(String[] args) throws IllegalArgumentException, IOException {
+        String input = null;
+        int width = 0;
+        int height = 0;
+        int resolution = Constant.DEFAULT_RESOLUTION;
+        TreeSet<Character> chars = new TreeSet<>();
+        double fps = Constant.DEFAULT_FPS;
+        String outputType = Constant.CONSOLE_OUTPUT;
+        String outputFile = null;
+        int keyframeInterval = Constant.DEFAULT_KEYFRAME_INTERVAL;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException();
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case Constant.VIDEO_OPTION:
+                    input = value;
+                    break;
+                case Constant.SIZE_OPTION:
+                    String[] size = value.split(Constant.SIZE_SEPARATOR);
+                    if (size.length != 2) {
+                        throw new IllegalArgumentException();
+                    }
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                case Constant.RES_OPTION:
+                    resolution = Integer.parseInt(value);
+                    break;
+                case Constant.CHARS_OPTION:
+                    BatchConverter.addChars(chars, value);
+                    break;
+                case Constant.FPS_OPTION:
+                    fps = Double.parseDouble(value);
+                    break;
+                case Constant.OUT_OPTION:
+                    if (!value.equals(Constant.CONSOLE_OUTPUT) && !value.equals(Constant.DELTA_CONSOLE_OUTPUT)
+                            && !value.equals(Constant.HTML_OUTPUT) && !value.equals(Constant.TEXT_OUTPUT)
+                            && !value.equals(Constant.DELTA_OUTPUT)) {
+                        throw new IllegalArgumentException();
+                    }
+                    outputType = value;
+                    break;
+                case Constant.OUT_FILE_OPTION:
+                    outputFile = value;
+                    break;
+                case Constant.KEYFRAME_OPTION:
+                    keyframeInterval = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+        if (input == null || resolution < 1 || !(fps >= 0) || keyframeInterval < 1) {
+            throw new IllegalArgumentException();
+        }
+        if (outputFile == null) {
+            outputFile = outputType.equals(Constant.HTML_OUTPUT) ? Constant.VIDEO_HTML_FILE :
+                    outputType.equals(Constant.DELTA_OUTPUT) ? Constant.VIDEO_DELTA_FILE : Constant.VIDEO_TEXT_FILE;
+        }
+        FrameSource source;
+        if (input.equals(Constant.STDIN_SOURCE)) {
+            if (width < 1 || height < 1) {
+                throw new IllegalArgumentException();
+            }
+            source = new RawRgbSource(System.in, width, height);
+        } else {
+            source = new ImageSequenceSource(input);
+        }
+        return new FramePipeline(source, resolution, new SubImgCharMatcher(BatchConverter.toCharset(chars)),
+                fps, outputType, outputFile, keyframeInterval);
+    }
+
+    /**
+     * Converts all the frames and prints the achieved frame rate.
+     * @throws IllegalStateException If the resolution does not fit the frame size.
+     * @throws IOException If a frame can not be read or the output can not be opened.
+     */
+    void run() throws IllegalStateException, IOException {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        Frame first = new Frame(width, height);
+        // The tables of the brightness stage are allocated once, for the frame size.
+        EditImage editImage = new EditImage(first.image);
+        int maxRes = editImage.getPaddImage().getWidth();
+        int minRes = Math.max(maxRes / editImage.getPaddImage().getHeight(), 1);
+        if (resolution < minRes || resolution > maxRes || Integer.bitCount(resolution) != 1) {
+            source.close();
+            throw new IllegalStateException();
+        }
+        int rows = editImage.getPaddImage().getHeight() / (maxRes / resolution);
+        BlockingQueue<Frame> free = new ArrayBlockingQueue<>(SLOTS);
+        for (int i = 0; i < SLOTS; i++) {
+            Frame frame = i == 0 ? first : new Frame(width, height);
+            frame.allocate(rows, resolution);
+            free.add(frame);
+        }
+        BlockingQueue<Frame> decoded = new ArrayBlockingQueue<>(SLOTS + 1);
+        BlockingQueue<Frame> sliced = new ArrayBlockingQueue<>(SLOTS + 1);
+        BlockingQueue<Frame> matched = new ArrayBlockingQueue<>(SLOTS + 1);
+        CharLookupTable table = charMatcher.getLookupTable();
+        AsciiFrameOutput output = createOutput();
+        ExecutorService stages = Executors.newFixedThreadPool(STAGES);
+        stages.execute(stage(free, decoded, frame -> source.readFrame(frame.pixels)));
+        stages.execute(stage(decoded, sliced, frame -> {
+            editImage.setImage(frame.image);
+            editImage.fillBrightnessGrid(frame.grid);
+            return true;
+        }));
+        stages.execute(stage(sliced, matched, frame -> {
+            for (int row = 0; row < frame.art.length; row++) {
+                char[] line = frame.art[row];
+                for (int col = 0; col < line.length; col++) {
+                    line[col] = table.getChar(frame.grid.get(row, col));
+                }
+            }
+            return true;
+        }));
+        long frameNanos = fps > 0 ? (long) (NANOS_PER_SECOND / fps) : 0;
+        long start = System.nanoTime();
+        int frames = 0;
+        try {
+            Frame frame = matched.take();
+            while (frame != END) {
+                long wait = start + frames * frameNanos - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                output.outFrame(frame.art);
+                frames++;
+                free.put(frame);
+                frame = matched.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            output.close();
+            stages.shutdownNow();
+            source.close();
+        }
+        double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        System.out.println(String.format(Constant.VIDEO_SUMMARY_SYNTAX, frames, seconds, frames / seconds));
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    private AsciiFrameOutput createOutput() throws IOException {
+        if (outputType.equals(Constant.CONSOLE_OUTPUT)) {
+            return new AnimatedConsoleAsciiOutput();
+        }
+        if (outputType.equals(Constant.DELTA_CONSOLE_OUTPUT)) {
+            return new DeltaConsoleAsciiOutput(keyframeInterval);
+        }
+        File parent = new File(outputFile).getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        if (outputType.equals(Constant.HTML_OUTPUT)) {
+            return new HtmlFramesAsciiOutput(outputFile, Constant.HTML_FONT);
+        }
+        if (outputType.equals(Constant.DELTA_OUTPUT)) {
+            return new DeltaFileAsciiOutput(outputFile, keyframeInterval);
+        }
+        return new TextFramesAsciiOutput(outputFile);
+    }
+
+    private Runnable stage(BlockingQueue<Frame> input, BlockingQueue<Frame> output, FrameStep step) {
+        return () -> {
+            try {
+                try {
+                    Frame frame = input.take();
+                    while (frame != END && step.apply(frame)) {
+                        output.put(frame);
+                        frame = input.take();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure = e;
+                }
+                // The end of the sequence, or a failure, is passed on so every later stage stops.
+                output.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    /**
+     * The work of one pipeline stage on a frame.
+     */
+    private interface FrameStep {
+        /**
+         * Processes a frame.
+         * @return false if the sequence ended and the frame holds nothing.
+         */
+        boolean apply(Frame frame) throws IOException;
+    }
+
+    /**
+     * A slot holding all the buffers of one frame, from its pixels to its ASCII art.
+     */
+    private static class Frame {
+        private final int[] pixels;
+        private final Image image;
+        private BrightnessGrid grid;
+        private char[][] art;
+
+        Frame() {
+            this.pixels = null;
+            this.image = null;
+        }
+
+        Frame(int width, int height) {
+            this.pixels = new int[width * height];
+            this.image = new Image(pixels, width, height);
+        }
+
+        void allocate(int rows, int cols) {
+            grid = new BrightnessGrid(rows, cols);
+            art = new char[rows][cols];
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The ascii_art package contains classes related to generating ASCII art from images.
+ * It includes algorithms for converting images into ASCII representations.
+ */
+package ascii_art;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations that any number of threads can record to without locking.
+ * Every power of two range of nanoseconds is split into SUB_BUCKETS linear buckets, so a
+ * percentile is read with less than 1/SUB_BUCKETS relative error, from a fixed array of
+ * counters whatever the number of recorded durations.
+ */
+class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one duration.
+     * @param nanos The duration in nanoseconds.
+     */
+    void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Return the number of recorded durations.
+     * @return The count.
+     */
+    long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Return the longest recorded duration.
+     * @return The maximum in nanoseconds, 0 if nothing was recorded.
+     */
+    long getMax() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns a percentile of the recorded durations, as the upper bound of its bucket.
+     * Durations recorded while it runs may or may not be counted.
+     * @param fraction The fraction of durations at or below the percentile, in (0,1].
+     * @return The percentile in nanoseconds, 0 if nothing was recorded.
+     */
+    long percentile(double fraction) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            total += snapshot[bucket];
+        }
+        long rank = Math.max((long) Math.ceil(fraction * total), 1);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), getMax());
+            }
+        }
+        return 0;
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) (nanos >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * The ascii_art package contains classes related to generating ASCII art from images.
+ * It includes algorithms for converting images into ASCII representations.
+ */
+package ascii_art;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Timers and counters of the stages of the rendering pipeline.
+ * Every stage keeps its number of runs, a histogram of its durations in power of two buckets
+ * of nanoseconds, the bytes allocated by the thread running it and the number of tiles it
+ * processed. When disabled, begin and end return after reading one field, so the calls can
+ * stay in place on the rendering path. The stats are used from the Shell thread only.
+ */
+class PipelineStats {
+    /**
+     * The instrumented stages of the pipeline.
+     */
+    enum Stage {
+        /** Decoding an image file. */
+        DECODE,
+        /** Padding an image and building its brightness tables. */
+        EDIT,
+        /** Slicing an image into the tiles of a resolution. */
+        SLICE,
+        /** Matching a character to every tile. */
+        MATCH,
+        /** Writing the ASCII art. */
+        OUTPUT
+    }
+
+    private static final int BUCKETS = 64;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double BYTES_PER_MB = 1 << 20;
+    private static final double MEDIAN = 0.5;
+    private static final double TAIL = 0.99;
+    private final com.sun.management.ThreadMXBean threads;
+    private final long[] counts = new long[Stage.values().length];
+    private final long[] totalNanos = new long[Stage.values().length];
+    private final long[] maxNanos = new long[Stage.values().length];
+    private final long[] allocatedBytes = new long[Stage.values().length];
+    private final long[] tiles = new long[Stage.values().length];
+    private final long[][] histograms = new long[Stage.values().length][BUCKETS];
+    private final long[] renderNanos = new long[Stage.values().length];
+    private long renderBytes;
+    private long renders;
+    private boolean enabled;
+    private BufferedWriter json;
+    private long startNanos;
+    private long startBytes;
+
+    /**
+     * Constructs disabled PipelineStats.
+     */
+    PipelineStats() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+        } else {
+            threads = null;
+        }
+    }
+
+    /**
+     * Return whether the stats are collected.
+     * @return true if enabled.
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops collecting the stats. Stopping also stops the JSON dump.
+     * @param enabled true to collect the stats.
+     */
+    void setEnabled(boolean enabled) {
+        if (enabled && threads != null) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        this.enabled = enabled;
+        if (!enabled) {
+            closeJson();
+        }
+    }
+
+    /**
+     * Starts collecting the stats and appends one JSON line per render to a file.
+     * @param filename The name of the file to append to.
+     * @throws IOException If the file can not be opened.
+     */
+    void dumpJson(String filename) throws IOException {
+        closeJson();
+        json = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        setEnabled(true);
+    }
+
+    /**
+     * Clears all the collected stats.
+     */
+    void reset() {
+        for (int stage = 0; stage < counts.length; stage++) {
+            counts[stage] = 0;
+            totalNanos[stage] = 0;
+            maxNanos[stage] = 0;
+            allocatedBytes[stage] = 0;
+            tiles[stage] = 0;
+            renderNanos[stage] = 0;
+            Arrays.fill(histograms[stage], 0);
+        }
+        renderBytes = 0;
+        renders = 0;
+    }
+
+    /**
+     * Starts timing a stage. Stages are not nested, every begin is followed by its end.
+     */
+    void begin() {
+        if (!enabled) {
+            return;
+        }
+        startBytes = threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Finishes timing a stage started by begin.
+     * @param stage The stage that ran.
+     * @param tileCount The number of tiles the stage processed, 0 if it does not work on tiles.
+     */
+    void end(Stage stage, long tileCount) {
+        if (!enabled) {
+            return;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        long bytes = threads == null ? 0 : threads.getCurrentThreadAllocatedBytes() - startBytes;
+        int index = stage.ordinal();
+        counts[index]++;
+        totalNanos[index] += nanos;
+        maxNanos[index] = Math.max(maxNanos[index], nanos);
+        allocatedBytes[index] += bytes;
+        tiles[index] += tileCount;
+        histograms[index][BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 1))]++;
+        renderNanos[index] += nanos;
+        renderBytes += bytes;
+    }
+
+    /**
+     * Marks the end of a render, writing a JSON line with the stages run since the previous one
+     * if the dump is on.
+     * @param resolution The resolution of the render.
+     * @param tileCount The number of tiles of the render.
+     * @param cached true if the ASCII art was found in the cache.
+     */
+    void endRender(int resolution, long tileCount, boolean cached) {
+        if (!enabled) {
+            return;
+        }
+        renders++;
+        if (json != null) {
+            StringBuilder line = new StringBuilder("{\"render\":").append(renders)
+                    .append(",\"time_ms\":").append(System.currentTimeMillis())
+                    .append(",\"resolution\":").append(resolution)
+                    .append(",\"tiles\":").append(tileCount)
+                    .append(",\"cached\":").append(cached);
+            for (Stage stage : Stage.values()) {
+                line.append(",\"").append(stage.name().toLowerCase()).append("_ns\":")
+                        .append(renderNanos[stage.ordinal()]);
+            }
+            line.append(",\"allocated_bytes\":").append(renderBytes).append('}');
+            try {
+                json.write(line.toString());
+                json.newLine();
+                json.flush();
+            } catch (IOException e) {
+                closeJson();
+            }
+        }
+        Arrays.fill(renderNanos, 0);
+        renderBytes = 0;
+    }
+
+    /**
+     * Formats the collected stats as a table with one row per stage.
+     * @return A String with the stats.
+     */
+    String format() {
+        StringBuilder table = new StringBuilder(String.format(Constant.STATS_HEADER, renders));
+        for (Stage stage : Stage.values()) {
+            int index = stage.ordinal();
+            long count = counts[index];
+            double totalMillis = totalNanos[index] / NANOS_PER_MILLI;
+            table.append(System.lineSeparator()).append(String.format(Constant.STATS_ROW_SYNTAX,
+                    stage.name().toLowerCase(), count, totalMillis,
+                    count == 0 ? 0 : totalMillis / count,
+                    percentile(index, MEDIAN) / NANOS_PER_MILLI, percentile(index, TAIL) / NANOS_PER_MILLI,
+                    maxNanos[index] / NANOS_PER_MILLI, allocatedBytes[index] / BYTES_PER_MB,
+                    totalNanos[index] == 0 ? 0 : tiles[index] / (totalNanos[index] / NANOS_PER_MILLI / 1000)));
+        }
+        return table.toString();
+    }
+
+    private long percentile(int index, double fraction) {
+        // The upper bound of the bucket holding the percentile, capped by the maximum.
+        long rank = (long) Math.ceil(fraction * counts[index]);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += histograms[index][bucket];
+            if (seen >= rank && seen > 0) {
+                return Math.min(bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1, maxNanos[index]);
+            }
+        }
+        return 0;
+    }
+
+    private void closeJson() {
+        if (json != null) {
+            try {
+                json.close();
+            } catch (IOException ignored) {
+                // Nothing more can be written.
+            }
+            json = null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * The ascii_art package contains classes related to generating ASCII art from images.
+ * It includes algorithms for converting images into ASCII representations.
+ */
+package ascii_art;
+
+import image.BrightnessGrid;
+import image.Image;
+import image_char_matching.CharsetSnapshot;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of rendering results.
+ * Brightness grids are keyed by image content and resolution, and ASCII art is keyed by
+ * image content, resolution and charset. Each of the two caches holds up to half of the
+ * byte budget, evicting the least recently used entries first.
+ * Every entry also records the size of its image, and is only returned for an image of that size.
+ */
+class RenderCache {
+    private final LinkedHashMap<String, Entry<BrightnessGrid>> grids = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry<char[][]>> arts = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytesPerCache;
+    private long gridBytes;
+    private long artBytes;
+    private long gridHits;
+    private long gridMisses;
+    private long artHits;
+    private long artMisses;
+
+    /**
+     * Constructs an empty RenderCache.
+     * @param maxBytes The approximate number of bytes the cached results may take.
+     */
+    RenderCache(long maxBytes) {
+        this.maxBytesPerCache = maxBytes / 2;
+    }
+
+    /**
+     * Computes a key identifying the content of an image, so that loading the same
+     * image again hits the results cached for it. The key holds the image size and two
+     * independent 64-bit hashes of the pixels, so two images of the same size only share
+     * a key if both hashes collide.
+     * @param image The Image to identify.
+     * @return A String identifying the image content.
+     */
+    static String imageKey(Image image) {
+        int[] raster = image.getRaster();
+        long hash = 0xcbf29ce484222325L;
+        long mix = 0x9e3779b97f4a7c15L;
+        for (int row = 0; row < image.getHeight(); row++) {
+            int index = image.getOffset() + row * image.getStride();
+            for (int col = 0; col < image.getWidth(); col++) {
+                int pixel = raster[index + col];
+                hash = (hash ^ pixel) * 0x100000001b3L;
+                mix = Long.rotateLeft(mix ^ (pixel * 0xbf58476d1ce4e5b9L), 31) * 0x94d049bb133111ebL;
+            }
+        }
+        return image.getWidth() + "x" + image.getHeight() + ":" + Long.toHexString(hash)
+                + Long.toHexString(mix);
+    }
+
+    /**
+     * Computes the key of a brightness grid.
+     * @param imageKey The key of the image, as returned by imageKey.
+     * @param resolution The resolution of the grid.
+     * @param fitted Whether the grid slices the image without padding.
+     * @param color Whether the grid carries tile colors.
+     * @return The grid key.
+     */
+    static String gridKey(String imageKey, int resolution, boolean fitted, boolean color) {
+        return imageKey + "/" + resolution + (fitted ? "f" : "") + (color ? "c" : "");
+    }
+
+    /**
+     * Computes the key of an ASCII art.
+     * @param gridKey The key of the brightness grid the art is rendered from.
+     * @param shapes true if the tiles are matched by shape.
+     * @param charset The characters the art is rendered with.
+     * @return The art key.
+     */
+    static String artKey(String gridKey, boolean shapes, CharsetSnapshot charset) {
+        return new StringBuilder(gridKey).append(shapes ? "/s/" : "/").append(charset.getChars()).toString();
+    }
+
+    /**
+     * Returns a cached brightness grid.
+     * @param key The grid key.
+     * @param image The Image the grid is requested for.
+     * @return The grid, or null if it is not cached for an image of that size.
+     */
+    BrightnessGrid getGrid(String key, Image image) {
+        Entry<BrightnessGrid> entry = grids.get(key);
+        if (entry == null || !entry.isOf(image)) {
+            gridMisses++;
+            return null;
+        }
+        gridHits++;
+        return entry.value;
+    }
+
+    /**
+     * Caches a brightness grid, evicting older grids if the cache is full.
+     * @param key The grid key.
+     * @param image The Image the grid was sliced from.
+     * @param grid The grid to cache.
+     */
+    void putGrid(String key, Image image, BrightnessGrid grid) {
+        Entry<BrightnessGrid> old = grids.put(key, new Entry<>(grid, image));
+        if (old != null) {
+            gridBytes -= bytes(old.value);
+        }
+        gridBytes += bytes(grid);
+        Iterator<Map.Entry<String, Entry<BrightnessGrid>>> eldest = grids.entrySet().iterator();
+        while (gridBytes > maxBytesPerCache && grids.size() > 1) {
+            gridBytes -= bytes(eldest.next().getValue().value);
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Returns a cached ASCII art.
+     * @param key The art key.
+     * @param image The Image the art is requested for.
+     * @return The art, or null if it is not cached for an image of that size.
+     */
+    char[][] getArt(String key, Image image) {
+        Entry<char[][]> entry = arts.get(key);
+        if (entry == null || !entry.isOf(image)) {
+            artMisses++;
+            return null;
+        }
+        artHits++;
+        return entry.value;
+    }
+
+    /**
+     * Caches an ASCII art, evicting older arts if the cache is full.
+     * @param key The art key.
+     * @param image The Image the art was rendered from.
+     * @param art The art to cache.
+     */
+    void putArt(String key, Image image, char[][] art) {
+        Entry<char[][]> old = arts.put(key, new Entry<>(art, image));
+        if (old != null) {
+            artBytes -= bytes(old.value);
+        }
+        artBytes += bytes(art);
+        Iterator<Map.Entry<String, Entry<char[][]>>> eldest = arts.entrySet().iterator();
+        while (artBytes > maxBytesPerCache && arts.size() > 1) {
+            artBytes -= bytes(eldest.next().getValue().value);
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Describes the content and the hit and miss counters of the cache.
+     * @return A String with the cache statistics.
+     */
+    String stats() {
+        return String.format(Constant.CACHE_PRINT_SYNTAX, grids.size(), gridBytes, gridHits, gridMisses,
+                arts.size(), artBytes, artHits, artMisses);
+    }
+
+    private static long bytes(BrightnessGrid grid) {
+        int perTile = grid.hasColors() ? Double.BYTES + Integer.BYTES : Double.BYTES;
+        return (long) grid.getRows() * grid.getCols() * perTile;
+    }
+
+    private static long bytes(char[][] art) {
+        return art.length == 0 ? 0 : (long) art.length * art[0].length * Character.BYTES;
+    }
+
+    /**
+     * A cached result, with the size of the image it was computed from.
+     */
+    private static class Entry<T> {
+        private final T value;
+        private final int width;
+        private final int height;
+
+        Entry(T value, Image image) {
+            this.value = value;
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+        }
+
+        boolean isOf(Image image) {
+            return image.getWidth() == width && image.getHeight() == height;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+/**
+ * The ascii_art package contains classes related to generating ASCII art from images.
+ * It includes algorithms for converting images into ASCII representations.
+ */
+package ascii_art;
+
+import ascii_output.ConsoleAsciiOutput;
+import ascii_output.HtmlAsciiOutput;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import image.EditImage;
+import image.Image;
+import image_char_matching.SubImgCharMatcher;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The RenderServer class serves ASCII art over HTTP from a long-running JVM, so requests pay
+ * neither the JVM startup nor the glyph rendering of the charset.
+ * POST /render takes the bytes of a PNG/JPEG image as the request body, and the res, chars
+ * (repeatable, in the format of the add command) and format (text or html) query parameters.
+ * GET /metrics returns the request counts and latency percentiles as JSON.
+ * Requests are admitted on the server dispatcher thread: at most threads renders run at once
+ * and queue more wait for a render thread, any request beyond that is answered with 503
+ * straight away. Uploads are refused with 413 above MAX_UPLOAD_BYTES, or when the image header
+ * declares more than MAX_UPLOAD_PIXELS pixels, before any pixel is decoded. The images decoded
+ * and rendered at once share a budget of DECODE_PIXEL_BUDGET pixels, so a request waits for
+ * its share before decoding. The glyph brightness of every printable character is computed at startup,
+ * and the matchers of the charsets in use are shared by all the render threads.
+ * It is started with: Shell --serve &lt;port&gt; [--res N] [--chars C]... [--threads N] [--queue N].
+ */
+class RenderServer {
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double MEDIAN = 0.5;
+    private static final double P90 = 0.9;
+    private static final double TAIL = 0.99;
+    private static final int MAX_CACHED_CHARSETS = 64;
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int PAYLOAD_TOO_LARGE = 413;
+    private static final int SERVER_ERROR = 500;
+    private static final int UNAVAILABLE = 503;
+    private static final String POST = "POST";
+    private static final String GET = "GET";
+    private static final String TEXT_TYPE = "text/plain; charset=" + Charset.defaultCharset().name();
+    private static final String HTML_TYPE = "text/html; charset=utf-8";
+    private static final String JSON_TYPE = "application/json";
+    private final HttpServer server;
+    private final ExecutorService renderPool;
+    private final Semaphore admitted;
+    private final Semaphore decodeBudget = new Semaphore(Constant.DECODE_PIXEL_BUDGET);
+    private final int threads;
+    private final int queue;
+    private final int resolution;
+    private final char[] charset;
+    private final ConcurrentHashMap<String, SubImgCharMatcher> matchers = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private RenderServer(int port, int resolution, char[] charset, int threads, int queue) throws IOException {
+        this.resolution = resolution;
+        this.charset = charset;
+        this.threads = threads;
+        this.queue = queue;
+        this.admitted = new Semaphore(threads + queue);
+        // The semaphore bounds the requests handed to the pool, so its queue stays bounded.
+        this.renderPool = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(Constant.RENDER_PATH, this::admit);
+        server.createContext(Constant.METRICS_PATH, this::metrics);
+        warmUp();
+    }
+
+    /**
+     * Parses the server command-line arguments and opens the server port.
+     * @param args The command-line arguments, including --serve.
+     * @return A RenderServer configured by the arguments.
+     * @throws IllegalArgumentException If the arguments are incorrect.
+     * @throws IOException If the port can not be opened.
+     */
+    static RenderServer fromArgs(String[] args) throws IllegalArgumentException, IOException {
+        int port = -1;
+        int resolution = Constant.DEFAULT_RESOLUTION;
+        TreeSet<Character> chars = new TreeSet<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = -1;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException();
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case Constant.SERVE_OPTION:
+                    port = Integer.parseInt(value);
+                    break;
+                case Constant.RES_OPTION:
+                    resolution = Integer.parseInt(value);
+                    break;
+                case Constant.CHARS_OPTION:
+                    BatchConverter.addChars(chars, value);
+                    break;
+                case Constant.THREADS_OPTION:
+                    threads = Integer.parseInt(value);
+                    break;
+                case Constant.QUEUE_OPTION:
+                    queue = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+        if (queue == -1) {
+            queue = 2 * threads;
+        }
+        if (port < 0 || port > 0xffff || resolution < 1 || threads < 1 || queue < 0) {
+            throw new IllegalArgumentException();
+        }
+        return new RenderServer(port, resolution, BatchConverter.toCharset(chars), threads, queue);
+    }
+
+    /**
+     * Starts serving requests and prints the server address. The server stops with the JVM.
+     */
+    void start() {
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+        System.out.println(String.format(Constant.SERVER_STARTED_SYNTAX,
+                server.getAddress().getPort(), threads, queue));
+    }
+
+    /**
+     * Stops accepting requests and lets the running renders finish.
+     */
+    void stop() {
+        server.stop(0);
+        renderPool.shutdown();
+    }
+
+    private void warmUp() {
+        // Renders the glyph of every printable character once, for the brightness cache.
+        char[] printable = new char[Constant.TILDA - Constant.SPACE_CHAR + 1];
+        for (int i = 0; i < printable.length; i++) {
+            printable[i] = (char) (Constant.SPACE_CHAR + i);
+        }
+        new SubImgCharMatcher(printable);
+        matcherOf(charset);
+    }
+
+    private SubImgCharMatcher matcherOf(char[] chars) {
+        String key = new String(chars);
+        SubImgCharMatcher matcher = matchers.get(key);
+        if (matcher == null) {
+            matcher = new SubImgCharMatcher(chars);
+            if (matchers.size() < MAX_CACHED_CHARSETS) {
+                matchers.putIfAbsent(key, matcher);
+            }
+        }
+        return matcher;
+    }
+
+    private void admit(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        requests.incrementAndGet();
+        if (!admitted.tryAcquire()) {
+            reject(exchange);
+            return;
+        }
+        try {
+            renderPool.execute(() -> {
+                try {
+                    render(exchange);
+                } finally {
+                    admitted.release();
+                    latency.record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            reject(exchange);
+        }
+    }
+
+    private void reject(HttpExchange exchange) throws IOException {
+        rejected.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", Constant.RETRY_AFTER_SECONDS);
+        respond(exchange, UNAVAILABLE, TEXT_TYPE, Constant.SERVER_BUSY);
+    }
+
+    private void render(HttpExchange exchange) {
+        try {
+            if (!exchange.getRequestMethod().equals(POST)) {
+                exchange.getResponseHeaders().set("Allow", POST);
+                fail(exchange, METHOD_NOT_ALLOWED, "");
+                return;
+            }
+            RenderRequest request;
+            try {
+                request = parseQuery(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                fail(exchange, BAD_REQUEST, Constant.COMMAND_ERROR);
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readNBytes(Constant.MAX_UPLOAD_BYTES + 1);
+            if (body.length > Constant.MAX_UPLOAD_BYTES) {
+                fail(exchange, PAYLOAD_TOO_LARGE, Constant.IMAGE_ERROR);
+                return;
+            }
+            long pixels;
+            try {
+                pixels = pixelCount(body);
+            } catch (IOException e) {
+                fail(exchange, BAD_REQUEST, Constant.IMAGE_ERROR);
+                return;
+            }
+            if (pixels > Constant.MAX_UPLOAD_PIXELS) {
+                fail(exchange, PAYLOAD_TOO_LARGE, Constant.IMAGE_ERROR);
+                return;
+            }
+            // The decoded image and its tables live until the page is rendered.
+            decodeBudget.acquireUninterruptibly((int) pixels);
+            try {
+                render(exchange, request, body);
+            } finally {
+                decodeBudget.release((int) pixels);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                fail(exchange, SERVER_ERROR, "");
+            } catch (IOException ignored) {
+                // The connection is gone, there is no one to answer.
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void render(HttpExchange exchange, RenderRequest request, byte[] body) throws IOException {
+        Image image;
+        try {
+            image = new Image(new ByteArrayInputStream(body));
+        } catch (IOException e) {
+            fail(exchange, BAD_REQUEST, Constant.IMAGE_ERROR);
+            return;
+        }
+        EditImage editImage = new EditImage(image);
+        int maxRes = editImage.getPaddImage().getWidth();
+        int minRes = Math.max(maxRes / editImage.getPaddImage().getHeight(), 1);
+        if (request.resolution < minRes || request.resolution > maxRes
+                || Integer.bitCount(request.resolution) != 1) {
+            fail(exchange, BAD_REQUEST, Constant.RESOLUTION_BOUNDARIES_ERROR);
+            return;
+        }
+        editImage.setResolution(request.resolution);
+        SubImgCharMatcher matcher = matcherOf(request.charset);
+        char[][] art = new AsciiArtAlgorithm(editImage, request.resolution, matcher).run();
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        if (request.html) {
+            new HtmlAsciiOutput(page, Constant.HTML_FONT).out(art);
+        } else {
+            new ConsoleAsciiOutput(new PrintStream(page, false)).out(art);
+        }
+        rendered.incrementAndGet();
+        respond(exchange, OK, request.html ? HTML_TYPE : TEXT_TYPE, page.toByteArray());
+    }
+
+    private static long pixelCount(byte[] body) throws IOException {
+        // Only the header is read, the pixels are decoded after the size is known to be acceptable.
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(body))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("not a PNG/JPEG image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private RenderRequest parseQuery(String query) throws IllegalArgumentException {
+        int requestResolution = resolution;
+        TreeSet<Character> chars = new TreeSet<>();
+        boolean html = false;
+        if (query != null && !query.isEmpty()) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException();
+                }
+                String name = URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8);
+                String value = URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+                switch (name) {
+                    case Constant.RES_PARAM:
+                        requestResolution = Integer.parseInt(value);
+                        break;
+                    case Constant.CHARS_PARAM:
+                        BatchConverter.addChars(chars, value);
+                        break;
+                    case Constant.FORMAT_PARAM:
+                        if (!value.equals(Constant.TEXT_OUTPUT) && !value.equals(Constant.HTML_OUTPUT)) {
+                            throw new IllegalArgumentException();
+                        }
+                        html = value.equals(Constant.HTML_OUTPUT);
+                        break;
+                    default:
+                        throw new IllegalArgumentException();
+                }
+            }
+        }
+        return new RenderRequest(requestResolution, chars.isEmpty() ? charset : BatchConverter.toCharset(chars),
+                html);
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals(GET)) {
+            exchange.getResponseHeaders().set("Allow", GET);
+            respond(exchange, METHOD_NOT_ALLOWED, TEXT_TYPE, "");
+            return;
+        }
+        String json = String.format(Locale.ROOT, Constant.METRICS_SYNTAX, requests.get(), rendered.get(), failed.get(),
+                rejected.get(), threads + queue - admitted.availablePermits(),
+                latency.percentile(MEDIAN) / NANOS_PER_MILLI, latency.percentile(P90) / NANOS_PER_MILLI,
+                latency.percentile(TAIL) / NANOS_PER_MILLI, latency.getMax() / NANOS_PER_MILLI);
+        respond(exchange, OK, JSON_TYPE, json);
+    }
+
+    private void fail(HttpExchange exchange, int status, String message) throws IOException {
+        failed.incrementAndGet();
+        respond(exchange, status, TEXT_TYPE, message);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String type, String message)
+            throws IOException {
+        respond(exchange, status, type, message.isEmpty() ? new byte[0] :
+                (message + System.lineSeparator()).getBytes(Charset.defaultCharset()));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String type, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+
+    /**
+     * The parameters of one render request.
+     */
+    private static class RenderRequest {
+        private final int resolution;
+        private final char[] charset;
+        private final boolean html;
+
+        RenderRequest(int resolution, char[] charset, boolean html) {
+            this.resolution = resolution;
+            this.charset = charset;
+            this.html = html;
+        }
+    }
+}
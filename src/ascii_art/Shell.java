@@ -4,13 +4,22 @@
  */
 package ascii_art;
 
-import ascii_output.AsciiOutput;
+import ascii_output.AnsiColorConsoleAsciiOutput;
+import ascii_output.ColorAsciiOutput;
+import ascii_output.ColorHtmlAsciiOutput;
 import ascii_output.ConsoleAsciiOutput;
 import ascii_output.HtmlAsciiOutput;
+import ascii_output.StreamingAsciiOutput;
+import image.BrightnessGrid;
 import image.EditImage;
 import image.Image;
+import image.ImageBandReader;
+import image_char_matching.CharsetSnapshot;
+import image_char_matching.ShapeLookupTable;
 import image_char_matching.SubImgCharMatcher;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The Shell class represents the command-line interface for the ASCII Art application.
@@ -19,12 +28,20 @@ import java.io.IOException;
 public class Shell {
     private SubImgCharMatcher charMatcher;
     private int resolution;
-    private AsciiOutput output;
+    private StreamingAsciiOutput output;
     private int minRes;
     private int maxRes;
+    private boolean fitToImage;
     private Image image;
     private static boolean changeInImage = false;
     private EditImage editImage;
+    private ForkJoinPool renderPool;
+    private RenderCache renderCache;
+    private String imageKey;
+    private final PipelineStats stats = new PipelineStats();
+    private AsciiArtAlgorithm asciiArtAlgorithm;
+    private BrightnessGrid algorithmGrid;
+    private boolean shapeMatching;
     /**
      * Constructs a Shell object with default settings and initializes necessary components.
      */
@@ -32,8 +49,11 @@ public class Shell {
         charMatcher = new SubImgCharMatcher(Constant.DEFAULT_CHARS_ARRAY);
         resolution = Constant.DEFAULT_RESOLUTION;
         output = new ConsoleAsciiOutput();
+        setRenderThreads(Runtime.getRuntime().availableProcessors());
+        renderCache = new RenderCache(Constant.RENDER_CACHE_BYTES);
         try {
             image = new Image(Constant.DEFAULT_IMAGE);
+            imageKey = RenderCache.imageKey(image);
             editImage = new EditImage(image, resolution);
         }
         catch (IOException io){
@@ -49,25 +69,87 @@ public class Shell {
         System.out.print(Constant.ARROW);
         String input = KeyboardInput.readLine();
         while (!input.equals(Constant.EXIT_COMMAND)) {
-            String[] inputArr = input.split(" ");
-            switchCases(inputArr);
+            execute(input);
             System.out.print(Constant.ARROW);
             input = KeyboardInput.readLine();
         }
     }
 
+    /**
+     * Runs a single command, as if it was typed in the shell.
+     * @param input The command line.
+     */
+    void execute(String input) {
+        switchCases(input.split(" "));
+    }
+
     /**
      * The main method to start the ASCII Art application.
-     * @param args Command-line arguments (not used).
+     * Without arguments the interactive shell is started, with --batch the files given
+     * are converted without user interaction, with --video a sequence of frames is, and
+     * with --serve images are converted on HTTP requests.
+     * @param args Command-line arguments, empty or the batch, video or server mode arguments.
      */
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains(Constant.VIDEO_OPTION)) {
+            runVideo(args);
+            return;
+        }
+        if (Arrays.asList(args).contains(Constant.SERVE_OPTION)) {
+            runServer(args);
+            return;
+        }
+        if (args.length > 0) {
+            runBatch(args);
+            return;
+        }
         Shell shell = new Shell();
         shell.run();
     }
+    private static void runVideo(String[] args){
+        try {
+            FramePipeline.fromArgs(args).run();
+        }
+        catch (IllegalStateException e){
+            System.out.println(Constant.RESOLUTION_BOUNDARIES_ERROR);
+        }
+        catch (IOException e){
+            System.out.println(Constant.IMAGE_ERROR);
+        }
+        catch (IllegalArgumentException e){
+            System.out.println(Constant.VIDEO_ARGS_ERROR);
+        }
+    }
+    private static void runServer(String[] args){
+        try {
+            RenderServer.fromArgs(args).start();
+        }
+        catch (IllegalArgumentException e){
+            System.out.println(Constant.SERVE_ARGS_ERROR);
+        }
+        catch (IOException e){
+            System.out.println(Constant.SERVER_ERROR);
+        }
+    }
+    private static void runBatch(String[] args){
+        try {
+            BatchConverter.fromArgs(args).run();
+        }
+        catch (IllegalArgumentException | IOException e){
+            System.out.println(Constant.BATCH_ARGS_ERROR);
+        }
+    }
     private void initMinMaxRes(){
         maxRes = editImage.getPaddImage().getWidth();
         minRes = Math.max(maxRes/editImage.getPaddImage().getHeight(),1);
     }
+    private void sliceImage(EditImage editImage, boolean color){
+        if (fitToImage) {
+            editImage.setFittedResolution(resolution, color);
+        } else {
+            editImage.setResolution(resolution, color);
+        }
+    }
     private void switchCases(String[] inputArr) {
         switch (inputArr[0]) {
             case (Constant.CHARS_COMMAND):
@@ -82,6 +164,12 @@ public class Shell {
             case (Constant.RES_COMMAND):
                 catchResException(inputArr);
                 break;
+            case (Constant.THREADS_COMMAND):
+                catchThreadsException(inputArr);
+                break;
+            case (Constant.MATCH_COMMAND):
+                catchMatchException(inputArr);
+                break;
             case (Constant.IMAGE_COMMAND):
                 catchImageException(inputArr);
                 break;
@@ -91,6 +179,15 @@ public class Shell {
             case (Constant.ASCIIART_COMMAND):
                 catchAsciiArtException();
                 break;
+            case (Constant.STREAM_COMMAND):
+                catchStreamException(inputArr);
+                break;
+            case (Constant.CACHE_COMMAND):
+                cacheInput(inputArr);
+                break;
+            case (Constant.STATS_COMMAND):
+                catchStatsException(inputArr);
+                break;
             default:
                 System.out.println(Constant.COMMAND_ERROR);
                 break;
@@ -100,7 +197,7 @@ public class Shell {
         if (inputArr.length > 1){
             System.out.println(Constant.COMMAND_ERROR);
         } else {
-            for (Character c : charMatcher.getChar()) {
+            for (char c : charMatcher.snapshot().getChars()) {
                 System.out.print(String.format("%c ", c));
             }
             System.out.println();
@@ -119,16 +216,140 @@ public class Shell {
         }
     }
     private void runAlgo() throws IllegalArgumentException , IOException{
-        if(charMatcher.getChar().isEmpty()){
+        // The charset is read once, a change made meanwhile applies from the next render.
+        CharsetSnapshot charset = charMatcher.snapshot();
+        if(charset.isEmpty()){
             throw new IllegalArgumentException();
         }
-        if (changeInImage) {
-            editImage = new EditImage(image, resolution);
-            changeInImage = false;
+        boolean color = output instanceof ColorAsciiOutput;
+        String gridKey = RenderCache.gridKey(imageKey, resolution, fitToImage, color);
+        String artKey = RenderCache.artKey(gridKey, shapeMatching, charset);
+        char[][] algoResult = renderCache.getArt(artKey, image);
+        boolean cached = algoResult != null;
+        BrightnessGrid grid = null;
+        if (algoResult == null || color) {
+            grid = getGrid(gridKey, color);
+        }
+        if (algoResult == null) {
+            if (grid != algorithmGrid) {
+                // Reusing the algorithm of the same grid lets it only rematch the tiles
+                // affected by a charset change.
+                asciiArtAlgorithm = new AsciiArtAlgorithm(grid,getCells(grid),resolution,charMatcher,renderPool);
+                algorithmGrid = grid;
+            }
+            stats.begin();
+            algoResult = asciiArtAlgorithm.run(charset);
+            stats.end(PipelineStats.Stage.MATCH, (long) algoResult.length * resolution);
+            renderCache.putArt(artKey, image, algoResult);
+        }
+        stats.begin();
+        if (color) {
+            ((ColorAsciiOutput) output).out(algoResult, grid.getColors());
+        } else {
+            output.out(algoResult);
+        }
+        stats.end(PipelineStats.Stage.OUTPUT, 0);
+        stats.endRender(resolution, (long) algoResult.length * resolution, cached);
+    }
+    private BrightnessGrid getCells(BrightnessGrid grid){
+        if (!shapeMatching) {
+            return null;
+        }
+        // Every tile is divided into a power of two of cells on each side, up to ShapeLookupTable.CELLS.
+        // The cells are derived from the grid rendered, which may come from the cache while
+        // editImage still holds the grid of another resolution.
+        int tileWidth = (fitToImage ? image.getWidth() : maxRes)/resolution;
+        int cellsPerTile = Integer.highestOneBit(Math.min(tileWidth, ShapeLookupTable.CELLS));
+        stats.begin();
+        BrightnessGrid cells = fitToImage
+                ? editImage.getBrightnessGrid(resolution*cellsPerTile, grid.getRows()*cellsPerTile)
+                : editImage.getBrightnessGrid(resolution*cellsPerTile);
+        stats.end(PipelineStats.Stage.SLICE, cells.getRows() * (long) cells.getCols());
+        return cells;
+    }
+    private BrightnessGrid getGrid(String gridKey, boolean color){
+        BrightnessGrid grid = renderCache.getGrid(gridKey, image);
+        if (grid == null) {
+            // The tile colors are only summed for the outputs that show them.
+            if (changeInImage || editImage.getBrightnessGrid().hasColors() != color) {
+                stats.begin();
+                sliceImage(editImage, color);
+                stats.end(PipelineStats.Stage.SLICE, editImage.getBrightnessGrid().getRows() * (long) resolution);
+                changeInImage = false;
+            }
+            grid = editImage.getBrightnessGrid();
+            renderCache.putGrid(gridKey, image, grid);
+        }
+        return grid;
+    }
+    private void cacheInput(String [] inputArr){
+        if (inputArr.length > 1){
+            System.out.println(Constant.COMMAND_ERROR);
+        } else {
+            System.out.println(renderCache.stats());
+        }
+    }
+    private void catchStatsException(String [] inputArr){
+        try {
+            statsInputValidation(inputArr);
+        }
+        catch (IOException | IllegalArgumentException e){
+            System.out.println(Constant.STATS_FORMAT_ERROR);
+        }
+    }
+    private void statsInputValidation(String [] inputArr) throws IOException, IllegalArgumentException{
+        if (inputArr.length == 1) {
+            System.out.println(stats.isEnabled() ? stats.format() : Constant.STATS_DISABLED);
+            return;
+        }
+        String rest = inputArr[1];
+        if (rest.equals(Constant.STATS_JSON) && inputArr.length == 3) {
+            stats.dumpJson(inputArr[2]);
+        } else if (inputArr.length > 2) {
+            throw new IllegalArgumentException();
+        } else if (rest.equals(Constant.STATS_ON)) {
+            stats.setEnabled(true);
+        } else if (rest.equals(Constant.STATS_OFF)) {
+            stats.setEnabled(false);
+        } else if (rest.equals(Constant.STATS_RESET)) {
+            stats.reset();
+        } else {
+            throw new IllegalArgumentException();
+        }
+    }
+    private void catchStreamException(String [] inputArr){
+        try {
+            streamInputValidation(inputArr);
+        }
+        catch (IllegalStateException e){
+            System.out.println(Constant.EMPTY_CHARS);
+        }
+        catch (IOException | IllegalArgumentException e){
+            System.out.println(Constant.IMAGE_ERROR);
+        }
+    }
+    private void streamInputValidation(String [] inputArr) throws IOException, IllegalArgumentException{
+        if (inputArr.length == 1) {
+            throw new IllegalArgumentException();
+        }
+        String rest = inputArr[1];
+        if (!(rest.contains(Constant.IMAGE_PNG)|rest.contains(Constant.IMAGE_JPEG))) {
+            throw new IllegalArgumentException();
+        }
+        if(charMatcher.snapshot().isEmpty()){
+            throw new IllegalStateException();
+        }
+        try (ImageBandReader reader = new ImageBandReader(rest)) {
+            int streamMaxRes = reader.getPaddedWidth();
+            int streamMinRes = Math.max(streamMaxRes/reader.getPaddedHeight(),1);
+            // Streamed bands are sliced with the padding, fitted tiles would span several bands.
+            if (fitToImage || resolution < streamMinRes || resolution > streamMaxRes) {
+                System.out.println(Constant.RESOLUTION_BOUNDARIES_ERROR);
+                return;
+            }
+            new StreamingAsciiArtAlgorithm(reader, resolution, charMatcher)
+                    .run(output);
         }
-        AsciiArtAlgorithm asciiArtAlgorithm = new AsciiArtAlgorithm(editImage,resolution,charMatcher);
-        char[][] algoResult = asciiArtAlgorithm.run();
-        output.out(algoResult);
     }
     private void catchOutputException(String [] inputArr){
         try{
@@ -144,17 +365,70 @@ public class Shell {
         }
         String rest = inputArr[1];
         if (rest.equals(Constant.HTML_OUTPUT)) {
-            if (!(output instanceof HtmlAsciiOutput)) {
-                output = new HtmlAsciiOutput(Constant.HTML_OUTPUT_FILE, Constant.HTML_FONT);
-            }
+            output = new HtmlAsciiOutput(Constant.HTML_OUTPUT_FILE, Constant.HTML_FONT);
+        } else if (rest.equals(Constant.HTML_GZ_OUTPUT)) {
+            output = new HtmlAsciiOutput(Constant.HTML_GZ_OUTPUT_FILE, Constant.HTML_FONT);
+        } else if (rest.equals(Constant.COLOR_HTML_OUTPUT)) {
+            output = new ColorHtmlAsciiOutput(Constant.HTML_OUTPUT_FILE, Constant.HTML_FONT);
+        } else if (rest.equals(Constant.COLOR_CONSOLE_OUTPUT)) {
+            output = new AnsiColorConsoleAsciiOutput();
         } else if (rest.equals(Constant.CONSOLE_OUTPUT)) {
-            if (!(output instanceof ConsoleAsciiOutput)) {
+            // The color console output is a console output too, and must be replaced.
+            if (output.getClass() != ConsoleAsciiOutput.class) {
                 output = new ConsoleAsciiOutput();
             }
         } else {
             throw new IllegalArgumentException();
         }
     }
+    private void catchThreadsException(String [] inputArr){
+        try{
+            threadsInputValidation(inputArr);
+        }
+        catch (IllegalArgumentException e){
+            System.out.println(Constant.THREADS_FORMAT_ERROR);
+        }
+    }
+    private void catchMatchException(String [] inputArr){
+        try{
+            matchInputValidation(inputArr);
+        }
+        catch (IllegalArgumentException e){
+            System.out.println(Constant.MATCH_FORMAT_ERROR);
+        }
+    }
+    private void matchInputValidation(String [] inputArr) throws IllegalArgumentException {
+        if (inputArr.length != 2) {
+            throw new IllegalArgumentException();
+        }
+        if (inputArr[1].equals(Constant.MATCH_SHAPE)) {
+            shapeMatching = true;
+        } else if (inputArr[1].equals(Constant.MATCH_BRIGHTNESS)) {
+            shapeMatching = false;
+        } else {
+            throw new IllegalArgumentException();
+        }
+        algorithmGrid = null;
+        System.out.println(String.format(Constant.MATCH_PRINT_SYNTAX, inputArr[1]));
+    }
+    private void threadsInputValidation(String [] inputArr) throws IllegalArgumentException {
+        if (inputArr.length == 1) {
+            throw new IllegalArgumentException();
+        }
+        int threads = Integer.parseInt(inputArr[1]);
+        if (threads < 1) {
+            throw new IllegalArgumentException();
+        }
+        setRenderThreads(threads);
+        System.out.println(String.format(Constant.THREADS_PRINT_SYNTAX, threads));
+    }
+    private void setRenderThreads(int threads){
+        if (renderPool != null) {
+            renderPool.shutdown();
+        }
+        renderPool = threads > 1 ? new ForkJoinPool(threads) : null;
+        algorithmGrid = null;
+    }
     private void catchImageException(String [] inputArr){
         try {
             imageInputValidation(inputArr);
@@ -168,9 +442,26 @@ public class Shell {
         }
         String rest = inputArr[1];
         if(rest.contains(Constant.IMAGE_PNG)|rest.contains(Constant.IMAGE_JPEG)){
-            image = new Image(rest);
-            editImage = new EditImage(image, resolution);
-            changeInImage = false;
+            stats.begin();
+            Image next = new Image(rest);
+            stats.end(PipelineStats.Stage.DECODE, 0);
+            if (image != null && next.getWidth() == image.getWidth() && next.getHeight() == image.getHeight()) {
+                // Only the tiles that differ from the current image are computed again.
+                stats.begin();
+                int changedTiles = editImage.updateImage(next);
+                stats.end(PipelineStats.Stage.SLICE, changedTiles);
+            } else {
+                stats.begin();
+                EditImage nextEditImage = new EditImage(next);
+                stats.end(PipelineStats.Stage.EDIT, 0);
+                stats.begin();
+                sliceImage(nextEditImage, output instanceof ColorAsciiOutput);
+                stats.end(PipelineStats.Stage.SLICE, nextEditImage.getBrightnessGrid().getRows() * (long) resolution);
+                editImage = nextEditImage;
+                changeInImage = false;
+            }
+            image = next;
+            imageKey = RenderCache.imageKey(image);
             initMinMaxRes();
         }
         else{
@@ -189,25 +480,40 @@ public class Shell {
             throw new IllegalArgumentException();
         }
         String res = inputArr[1];
-        if (res.equals(Constant.UP)){
-            if(resolutionBoundaries(resolution*2)){
-                resolution *= 2;
-                System.out.println(String.format(Constant.RESOLUTION_PRINT_SYNTAX,resolution));
-            }
-        }
-        else if (res.equals(Constant.DOWN)){
-            if(resolutionBoundaries(resolution/2)){
-                resolution /= 2;
-                System.out.println(String.format(Constant.RESOLUTION_PRINT_SYNTAX,resolution));
+        if (res.equals(Constant.UP) || res.equals(Constant.DOWN)){
+            // Doubling and halving step between the padded resolutions, so from a fitted
+            // resolution they go to the nearest padded one in that direction.
+            int newResolution = res.equals(Constant.UP) ? Integer.highestOneBit(resolution)*2
+                    : Integer.highestOneBit(resolution-1);
+            if(resolutionBoundaries(newResolution)){
+                setResolution(newResolution, false);
             }
         }
         else{
-            throw new IllegalArgumentException();
+            // A power of two within the limits keeps the padding, any other number of columns
+            // up to the image width slices the image itself, without padding.
+            int newResolution = Integer.parseInt(res);
+            if (isPaddedResolution(newResolution)) {
+                setResolution(newResolution, false);
+            } else if (newResolution >= 1 && newResolution <= image.getWidth()) {
+                setResolution(newResolution, true);
+            } else {
+                System.out.println(Constant.RESOLUTION_BOUNDARIES_ERROR);
+                return;
+            }
         }
         changeInImage = true;
     }
+    private void setResolution(int resolution, boolean fitToImage){
+        this.resolution = resolution;
+        this.fitToImage = fitToImage;
+        System.out.println(String.format(Constant.RESOLUTION_PRINT_SYNTAX,resolution));
+    }
+    private boolean isPaddedResolution(int resolution) {
+        return Integer.bitCount(resolution) == 1 && resolution>=minRes && resolution<=maxRes;
+    }
     private boolean resolutionBoundaries(int resolution) {
-        if (resolution>=minRes && resolution<=maxRes){
+        if (isPaddedResolution(resolution)){
             return true;
         }
         System.out.println(Constant.RESOLUTION_BOUNDARIES_ERROR);
@@ -242,10 +548,7 @@ public class Shell {
         }
     }
     private void removeSequence(char start,char end){
-        for(char i=start;i<=end;i++){
-            charMatcher.removeChar(i);
-        }
-
+        charMatcher.removeChars(sequence(start,end));
     }
     private void catchAddException(String[] inputArr){
         try{
@@ -277,9 +580,14 @@ public class Shell {
         }
     }
     private void addSequence(char start,char end){
-        for(char i=start;i<=end;i++){
-            charMatcher.addChar(i);
+        charMatcher.addChars(sequence(start,end));
+    }
+    private static char[] sequence(char start,char end){
+        char[] chars = new char[end-start+1];
+        for(int i=0;i<chars.length;i++){
+            chars[i] = (char) (start+i);
         }
+        return chars;
     }
 
 }
@@ -0,0 +1,57 @@
+/**
+ * The ascii_art package contains classes related to generating ASCII art from images.
+ * It includes algorithms for converting images into ASCII representations.
+ */
+package ascii_art;
+
+import ascii_output.StreamingAsciiOutput;
+import image.ImageBandReader;
+import image_char_matching.CharLookupTable;
+import image_char_matching.SubImgCharMatcher;
+import java.io.IOException;
+
+/**
+ * This class generates ASCII art from an image file one row at a time.
+ * Each row of tiles is output as soon as the file is decoded past it, before the rest of the
+ * file is decoded, so the image never has to fit in memory as a whole.
+ */
+public class StreamingAsciiArtAlgorithm {
+    private ImageBandReader reader;
+    private SubImgCharMatcher charMatcher;
+    private int resolution;
+
+    /**
+     * Constructs a StreamingAsciiArtAlgorithm object over an image file reader.
+     * @param reader The ImageBandReader of the image file.
+     * @param resolution An int representing the resolution of the ASCII art.
+     * @param charMatcher The SubImgCharMatcher object for character matching.
+     */
+    public StreamingAsciiArtAlgorithm(ImageBandReader reader, int resolution,
+                                      SubImgCharMatcher charMatcher){
+        this.reader = reader;
+        this.resolution = resolution;
+        this.charMatcher = charMatcher;
+    }
+
+    /**
+     * Generates ASCII art from the image file, passing each row to the output as it is done.
+     * @param output The StreamingAsciiOutput receiving the rows.
+     * @throws IOException If there is an error decoding the image file.
+     */
+    public void run(StreamingAsciiOutput output) throws IOException {
+        int size = reader.getPaddedWidth()/resolution;
+        char[] line = new char[resolution];
+        CharLookupTable table = charMatcher.getLookupTable();
+        output.begin(resolution);
+        try {
+            reader.readTileRows(size, (brightness, row) -> {
+                for (int col = 0; col < resolution; col++) {
+                    line[col] = table.getChar(brightness[col]);
+                }
+                output.outRow(line);
+            });
+        } finally {
+            output.end();
+        }
+    }
+}
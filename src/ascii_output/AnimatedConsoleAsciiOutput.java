@@ -0,0 +1,32 @@
+package ascii_output;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output a sequence of frames to the console as an animation.
+ * The screen is cleared before the first frame and every later frame is drawn over the
+ * previous one by moving the cursor back to the top left corner with an ANSI escape.
+ */
+public class AnimatedConsoleAsciiOutput extends ConsoleAsciiOutput implements AsciiFrameOutput {
+    private static final byte[] CLEAR_SCREEN = "\u001b[2J\u001b[H".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CURSOR_HOME = "\u001b[H".getBytes(StandardCharsets.US_ASCII);
+    private boolean started;
+
+    @Override
+    public void outFrame(char[][] chars) {
+        begin(chars.length == 0 ? 0 : chars[0].length);
+        byte[] prefix = started ? CURSOR_HOME : CLEAR_SCREEN;
+        ensureCapacity(prefix.length);
+        append(prefix);
+        started = true;
+        for (char[] row : chars) {
+            outRow(row);
+        }
+        end();
+    }
+
+    @Override
+    public void close() {
+        started = false;
+    }
+}
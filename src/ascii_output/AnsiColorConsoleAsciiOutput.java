@@ -0,0 +1,60 @@
+package ascii_output;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output a 2D array of chars to the console in color, using ANSI 24-bit color escapes.
+ * A color escape is only emitted where the color changes, spaces keep the current color,
+ * and every row ends by resetting the color.
+ */
+public class AnsiColorConsoleAsciiOutput extends ConsoleAsciiOutput implements ColorAsciiOutput {
+    private static final byte[] RESET = "\u001b[0m".getBytes(StandardCharsets.US_ASCII);
+    // The longest escape, ESC[38;2;255;255;255m, is 19 bytes, and a char may need 3 more.
+    private static final int MAX_CELL_SIZE = 24;
+    private static final byte[] COLOR_PREFIX = "\u001b[38;2;".getBytes(StandardCharsets.US_ASCII);
+    private final byte[] escape = new byte[MAX_CELL_SIZE];
+
+    @Override
+    public void out(char[][] chars, int[] colors) {
+        begin(chars.length == 0 ? 0 : chars[0].length);
+        for (int y = 0; y < chars.length; y++) {
+            char[] row = chars[y];
+            ensureCapacity(MAX_CELL_SIZE * row.length + RESET.length + 2);
+            int current = -1;
+            for (int x = 0; x < row.length; x++) {
+                int rgb = ColorAsciiOutput.quantize(colors[y * row.length + x]);
+                if (row[x] != ' ' && rgb != current) {
+                    appendColor(rgb);
+                    current = rgb;
+                }
+                appendChar(row[x]);
+            }
+            append(RESET);
+            endRow();
+        }
+        end();
+    }
+
+    private void appendColor(int rgb) {
+        System.arraycopy(COLOR_PREFIX, 0, escape, 0, COLOR_PREFIX.length);
+        int length = COLOR_PREFIX.length;
+        length = appendDecimal((rgb >> 16) & 0xff, length);
+        escape[length++] = ';';
+        length = appendDecimal((rgb >> 8) & 0xff, length);
+        escape[length++] = ';';
+        length = appendDecimal(rgb & 0xff, length);
+        escape[length++] = 'm';
+        append(escape, length);
+    }
+
+    private int appendDecimal(int value, int length) {
+        if (value >= 100) {
+            escape[length++] = (byte) ('0' + value / 100);
+        }
+        if (value >= 10) {
+            escape[length++] = (byte) ('0' + value / 10 % 10);
+        }
+        escape[length++] = (byte) ('0' + value % 10);
+        return length;
+    }
+}
@@ -0,0 +1,45 @@
+package ascii_output;
+
+/**
+ * An object implementing this interface can output a sequence of 2D arrays of chars,
+ * such as the frames of an ASCII video.
+ */
+public interface AsciiFrameOutput {
+    /**
+     * Output the next frame. The array may be reused by the caller once this returns.
+     */
+    void outFrame(char[][] chars);
+
+    /**
+     * Finish the output of the sequence
+     */
+    void close();
+
+    /**
+     * Returns the index of the first cell of a row, from the given one, that differs from
+     * the previous frame, or the row length if there is none.
+     */
+    static int nextChange(char[] row, char[] previous, int from) {
+        while (from < row.length && row[from] == previous[from]) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Returns the end of the run of changed cells starting at a changed cell of a row.
+     * Gaps of at most maxGap unchanged cells are part of the run, as rewriting them costs
+     * less than starting a new run.
+     */
+    static int changedRunEnd(char[] row, char[] previous, int start, int maxGap) {
+        int end = start + 1;
+        while (end < row.length) {
+            int next = nextChange(row, previous, end);
+            if (next == row.length || next - end > maxGap) {
+                break;
+            }
+            end = next + 1;
+        }
+        return end;
+    }
+}
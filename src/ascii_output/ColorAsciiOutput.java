@@ -0,0 +1,20 @@
+package ascii_output;
+
+/**
+ * An AsciiOutput that can also draw every char in its own color.
+ */
+public interface ColorAsciiOutput extends AsciiOutput {
+    /**
+     * Output the specified 2D array of chars, where colors holds the packed RGB color
+     * of every char, row after row
+     */
+    void out(char[][] chars, int[] colors);
+
+    /**
+     * Rounds a packed RGB color to 16 levels per channel, so neighbouring chars of nearly
+     * the same color share one color change in the output
+     */
+    static int quantize(int rgb) {
+        return (rgb & 0xf0f0f0) | 0x080808;
+    }
+}
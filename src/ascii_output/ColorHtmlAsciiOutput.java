@@ -0,0 +1,53 @@
+package ascii_output;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output a 2D array of chars to an HTML file, drawing every char in its own color.
+ * Adjacent chars of the same (quantized) color are merged into a single span, and spaces
+ * join the span around them, which keeps the file small and fast to render.
+ */
+public class ColorHtmlAsciiOutput extends HtmlAsciiOutput implements ColorAsciiOutput {
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SPAN_CLOSE = "</span>".getBytes(StandardCharsets.US_ASCII);
+    private static final String SPAN_OPEN = "<span style=\"color:#000000\">";
+    private static final int COLOR_INDEX = SPAN_OPEN.indexOf('#') + 1;
+    private final byte[] spanOpen = SPAN_OPEN.getBytes(StandardCharsets.US_ASCII);
+
+    public ColorHtmlAsciiOutput(String filename, String fontName) {
+        super(filename, fontName);
+    }
+
+    @Override
+    public void out(char[][] chars, int[] colors) {
+        begin(chars[0].length);
+        for (int y = 0; y < chars.length && isOpen(); y++) {
+            char[] row = chars[y];
+            ensureCapacity((spanOpen.length + SPAN_CLOSE.length + MAX_CHAR_SIZE) * row.length + 2);
+            int current = -1;
+            for (int x = 0; x < row.length; x++) {
+                int rgb = ColorAsciiOutput.quantize(colors[y * row.length + x]);
+                if (row[x] != ' ' && rgb != current) {
+                    if (current != -1) {
+                        append(SPAN_CLOSE);
+                    }
+                    appendSpanOpen(rgb);
+                    current = rgb;
+                }
+                appendChar(row[x]);
+            }
+            if (current != -1) {
+                append(SPAN_CLOSE);
+            }
+            endRow();
+        }
+        end();
+    }
+
+    private void appendSpanOpen(int rgb) {
+        for (int i = 0; i < 6; i++) {
+            spanOpen[COLOR_INDEX + i] = HEX_DIGITS[(rgb >> (20 - 4 * i)) & 0xf];
+        }
+        append(spanOpen);
+    }
+}
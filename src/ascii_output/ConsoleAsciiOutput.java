@@ -1,16 +1,140 @@
 package ascii_output;
 
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
 /**
  * Output a 2D array of chars to the console.
+ * Rows are encoded into a reusable byte buffer, each char followed by a space, and the
+ * buffer is written to the console in a few bulk writes instead of one print per char.
  * @author Dan Nirel
- */public class ConsoleAsciiOutput implements AsciiOutput{
+ */public class ConsoleAsciiOutput implements StreamingAsciiOutput{
+    private static final int FLUSH_SIZE = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(Charset.defaultCharset());
+    private final PrintStream stream;
+    private byte[] buffer = new byte[FLUSH_SIZE];
+    private int length;
+
+    public ConsoleAsciiOutput() {
+        this(System.out);
+    }
+
+    /**
+     * Constructs a ConsoleAsciiOutput writing to another stream than the console, such as a file.
+     * @param stream The PrintStream to write the rows to.
+     */
+    public ConsoleAsciiOutput(PrintStream stream) {
+        this.stream = stream;
+    }
+
     @Override
     public void out(char[][] chars) {
+        begin(chars.length == 0 ? 0 : chars[0].length);
         for (int y = 0; y < chars.length ; y++) {
-            for (int x = 0; x < chars[y].length; x++) {
-                System.out.print(chars[y][x] + " ");
+            outRow(chars[y]);
+        }
+        end();
+    }
+
+    @Override
+    public void begin(int rowLength) {
+        length = 0;
+    }
+
+    @Override
+    public void outRow(char[] row) {
+        ensureCapacity(2 * row.length + LINE_SEPARATOR.length);
+        for (int x = 0; x < row.length; x++) {
+            if (row[x] >= 0x80) {
+                outEncodedRow(row);
+                return;
             }
-            System.out.println();
+            buffer[length + 2 * x] = (byte) row[x];
+            buffer[length + 2 * x + 1] = ' ';
+        }
+        length += 2 * row.length;
+        endRow();
+    }
+
+    @Override
+    public void end() {
+        flush();
+        stream.flush();
+    }
+
+    /**
+     * Makes room for size more bytes in the buffer, writing it out if needed.
+     */
+    void ensureCapacity(int size) {
+        if (length + size > buffer.length) {
+            flush();
+            if (size > buffer.length) {
+                buffer = new byte[size];
+            }
+        }
+    }
+
+    /**
+     * Appends bytes to the buffer, the caller made room for them.
+     */
+    void append(byte[] bytes) {
+        append(bytes, bytes.length);
+    }
+
+    /**
+     * Appends the first count bytes of an array to the buffer, the caller made room for them.
+     */
+    void append(byte[] bytes, int count) {
+        System.arraycopy(bytes, 0, buffer, length, count);
+        length += count;
+    }
+
+    /**
+     * Appends a char and its separator space to the buffer, the caller made room for them.
+     */
+    void appendChar(char c) {
+        if (c >= 0x80) {
+            byte[] bytes = String.valueOf(c).getBytes(Charset.defaultCharset());
+            ensureCapacity(bytes.length + 1);
+            append(bytes);
+        } else {
+            buffer[length++] = (byte) c;
+        }
+        buffer[length++] = ' ';
+    }
+
+    /**
+     * Appends the line separator to the buffer, the caller made room for it.
+     */
+    void endRow() {
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes out the buffer and closes the stream.
+     * @return false if writing to the stream failed at any point.
+     */
+    boolean closeStream() {
+        flush();
+        stream.close();
+        return !stream.checkError();
+    }
+
+    private void outEncodedRow(char[] row) {
+        // Chars outside ASCII are rare, they go through the console charset.
+        StringBuilder line = new StringBuilder(2 * row.length);
+        for (char c : row) {
+            line.append(c).append(' ');
+        }
+        flush();
+        byte[] bytes = line.append(System.lineSeparator()).toString().getBytes(Charset.defaultCharset());
+        stream.write(bytes, 0, bytes.length);
+    }
+
+    private void flush() {
+        if (length > 0) {
+            stream.write(buffer, 0, length);
+            length = 0;
         }
     }
 }
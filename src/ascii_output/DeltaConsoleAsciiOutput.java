@@ -0,0 +1,108 @@
+package ascii_output;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output a sequence of frames to the console as an animation, redrawing only the cells that
+ * changed since the previous frame. Every run of changed cells of a row is written after an
+ * ANSI escape moving the cursor to it, and every keyframeInterval frames the whole frame is
+ * redrawn, so the screen recovers if it was disturbed.
+ */
+public class DeltaConsoleAsciiOutput extends AnimatedConsoleAsciiOutput {
+    // Moving the cursor, ESC[row;colH, costs about as much as rewriting 4 unchanged cells.
+    private static final int MAX_GAP = 4;
+    private static final int MAX_ESCAPE_SIZE = 24;
+    // A char takes up to 4 bytes in the console charset, followed by a space.
+    private static final int MAX_CELL_SIZE = 5;
+    private static final byte[] CURSOR_MOVE = "\u001b[".getBytes(StandardCharsets.US_ASCII);
+    private final int keyframeInterval;
+    private final byte[] escape = new byte[MAX_ESCAPE_SIZE];
+    private char[][] previous;
+    private int sinceKeyframe;
+
+    /**
+     * Constructs a DeltaConsoleAsciiOutput redrawing the whole frame every keyframeInterval frames.
+     * @param keyframeInterval An int representing the number of frames between two keyframes.
+     */
+    public DeltaConsoleAsciiOutput(int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    @Override
+    public void outFrame(char[][] chars) {
+        if (previous != null && !sameSize(chars)) {
+            close();
+        }
+        if (previous == null || sinceKeyframe == keyframeInterval) {
+            super.outFrame(chars);
+            remember(chars);
+            sinceKeyframe = 1;
+            return;
+        }
+        begin(chars.length == 0 ? 0 : chars[0].length);
+        for (int y = 0; y < chars.length; y++) {
+            char[] row = chars[y];
+            char[] last = previous[y];
+            int start = AsciiFrameOutput.nextChange(row, last, 0);
+            while (start < row.length) {
+                int end = AsciiFrameOutput.changedRunEnd(row, last, start, MAX_GAP);
+                ensureCapacity(MAX_ESCAPE_SIZE + MAX_CELL_SIZE * (end - start));
+                appendCursorMove(y, 2 * start);
+                for (int x = start; x < end; x++) {
+                    appendChar(row[x]);
+                }
+                System.arraycopy(row, start, last, start, end - start);
+                start = AsciiFrameOutput.nextChange(row, last, end);
+            }
+        }
+        // The cursor is left below the frame, where a full redraw would leave it.
+        ensureCapacity(MAX_ESCAPE_SIZE);
+        appendCursorMove(chars.length, 0);
+        end();
+        sinceKeyframe++;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        previous = null;
+    }
+
+    private boolean sameSize(char[][] chars) {
+        return chars.length == previous.length && (chars.length == 0 || chars[0].length == previous[0].length);
+    }
+
+    private void remember(char[][] chars) {
+        if (previous == null) {
+            previous = new char[chars.length][];
+            for (int y = 0; y < chars.length; y++) {
+                previous[y] = chars[y].clone();
+            }
+            return;
+        }
+        for (int y = 0; y < chars.length; y++) {
+            System.arraycopy(chars[y], 0, previous[y], 0, chars[y].length);
+        }
+    }
+
+    private void appendCursorMove(int row, int col) {
+        System.arraycopy(CURSOR_MOVE, 0, escape, 0, CURSOR_MOVE.length);
+        int length = appendNumber(row + 1, CURSOR_MOVE.length);
+        escape[length++] = ';';
+        length = appendNumber(col + 1, length);
+        escape[length++] = 'H';
+        append(escape, length);
+    }
+
+    private int appendNumber(int value, int length) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            escape[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return length + digits;
+    }
+}
@@ -0,0 +1,169 @@
+package ascii_output;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Output a sequence of frames to a compact delta file, where a frame only records the cells
+ * that changed since the previous one.
+ * The file starts with the 4 bytes "ASCD" and a version byte, followed by one record per frame.
+ * All numbers are unsigned LEB128 varints and chars are encoded in UTF-8.
+ * A keyframe record is the byte 'K', the number of rows, the number of columns and all the
+ * chars row after row. A delta record is the byte 'D' and the number of runs, each run being
+ * the number of cells skipped since the end of the previous run (or the start of the frame,
+ * counting row after row), the number of cells in the run and their chars.
+ * A keyframe is written every keyframeInterval frames, so playback can start from it.
+ */
+public class DeltaFileAsciiOutput implements AsciiFrameOutput {
+    private static final byte[] MAGIC = "ASCD".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int KEYFRAME = 'K';
+    private static final int DELTA = 'D';
+    // A new run costs at least 2 bytes, rewriting an unchanged cell usually 1.
+    private static final int MAX_GAP = 2;
+    private static final int FLUSH_SIZE = 1 << 16;
+    private final String filename;
+    private final int keyframeInterval;
+    private OutputStream stream;
+    private char[][] previous;
+    private int sinceKeyframe;
+    private int[] runStarts = new int[0];
+    private int[] runEnds = new int[0];
+
+    /**
+     * Constructs a DeltaFileAsciiOutput writing to the given file.
+     * @param filename The name of the file, created or truncated.
+     * @param keyframeInterval An int representing the number of frames between two keyframes.
+     * @throws IOException If the file can not be opened.
+     */
+    public DeltaFileAsciiOutput(String filename, int keyframeInterval) throws IOException {
+        this.filename = filename;
+        this.keyframeInterval = keyframeInterval;
+        this.stream = new BufferedOutputStream(Files.newOutputStream(Paths.get(filename)), FLUSH_SIZE);
+        stream.write(MAGIC);
+        stream.write(VERSION);
+    }
+
+    @Override
+    public void outFrame(char[][] chars) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            if (previous == null || sinceKeyframe == keyframeInterval || !sameSize(chars)) {
+                writeKeyframe(chars);
+                sinceKeyframe = 1;
+            } else {
+                writeDelta(chars);
+                sinceKeyframe++;
+            }
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+            stream = null;
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    private void writeKeyframe(char[][] chars) throws IOException {
+        int cols = chars.length == 0 ? 0 : chars[0].length;
+        stream.write(KEYFRAME);
+        writeVarint(chars.length);
+        writeVarint(cols);
+        for (char[] row : chars) {
+            writeChars(row, 0, row.length);
+        }
+        if (previous == null || !sameSize(chars)) {
+            previous = new char[chars.length][];
+            for (int y = 0; y < chars.length; y++) {
+                previous[y] = chars[y].clone();
+            }
+        } else {
+            for (int y = 0; y < chars.length; y++) {
+                System.arraycopy(chars[y], 0, previous[y], 0, cols);
+            }
+        }
+    }
+
+    private void writeDelta(char[][] chars) throws IOException {
+        // The runs are found first, as the record starts with their number.
+        int runs = 0;
+        for (int y = 0; y < chars.length; y++) {
+            char[] row = chars[y];
+            int start = AsciiFrameOutput.nextChange(row, previous[y], 0);
+            while (start < row.length) {
+                int end = AsciiFrameOutput.changedRunEnd(row, previous[y], start, MAX_GAP);
+                if (runs == runStarts.length) {
+                    runStarts = Arrays.copyOf(runStarts, Math.max(2 * runs, 16));
+                    runEnds = Arrays.copyOf(runEnds, runStarts.length);
+                }
+                runStarts[runs] = y * row.length + start;
+                runEnds[runs++] = y * row.length + end;
+                start = AsciiFrameOutput.nextChange(row, previous[y], end);
+            }
+        }
+        stream.write(DELTA);
+        writeVarint(runs);
+        int cols = chars.length == 0 ? 0 : chars[0].length;
+        int position = 0;
+        for (int i = 0; i < runs; i++) {
+            writeVarint(runStarts[i] - position);
+            writeVarint(runEnds[i] - runStarts[i]);
+            int y = runStarts[i] / cols;
+            int start = runStarts[i] % cols;
+            int end = start + runEnds[i] - runStarts[i];
+            writeChars(chars[y], start, end);
+            System.arraycopy(chars[y], start, previous[y], start, end - start);
+            position = runEnds[i];
+        }
+    }
+
+    private void writeChars(char[] row, int start, int end) throws IOException {
+        for (int x = start; x < end; x++) {
+            char c = row[x];
+            if (c < 0x80) {
+                stream.write(c);
+            } else {
+                stream.write(String.valueOf(c).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            stream.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+
+    private boolean sameSize(char[][] chars) {
+        return chars.length == previous.length && (chars.length == 0 || chars[0].length == previous[0].length);
+    }
+
+    private void fail() {
+        Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // The failure was already reported.
+        }
+        stream = null;
+    }
+}
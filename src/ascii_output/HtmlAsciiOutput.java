@@ -1,62 +1,231 @@
 package ascii_output;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Output a 2D array of chars to an HTML file viewable in a web browser.
+ * Rows are escaped through a precomputed table into a reusable UTF-8 byte buffer that is
+ * written to a FileChannel in large chunks. A filename ending with ".gz" is gzip-compressed.
  * @author Dan Nirel
  */
-public class HtmlAsciiOutput implements AsciiOutput {
+public class HtmlAsciiOutput implements StreamingAsciiOutput {
     private static final double BASE_LINE_SPACING = 0.8;
     private static final double BASE_FONT_SIZE = 150.0;
+    private static final int FLUSH_SIZE = 1 << 20;
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final byte[][] ESCAPES = new byte[128][];
+    /**
+     * The most bytes appendChar can write for one char, an escape is at most 5 bytes
+     * and a UTF-8 char at most 3.
+     */
+    static final int MAX_CHAR_SIZE = 5;
     private final String fontName;
     private final String filename;
+    private final OutputStream target;
+    private OutputStream stream;
+    private byte[] buffer = new byte[FLUSH_SIZE];
+    private int length;
+
+    static {
+        for (char c = 0; c < ESCAPES.length; c++) {
+            String htmlRep;
+            switch(c) {
+                case '<': htmlRep = "&lt;";  break;
+                case '>': htmlRep = "&gt;";  break;
+                case '&': htmlRep = "&amp;"; break;
+                default:  htmlRep = String.valueOf(c);
+            }
+            ESCAPES[c] = htmlRep.getBytes(StandardCharsets.UTF_8);
+        }
+    }
 
     public HtmlAsciiOutput(String filename, String fontName) {
         this.fontName = fontName;
         this.filename = filename;
+        this.target = null;
+    }
+
+    /**
+     * Constructs an HtmlAsciiOutput writing the page to a stream instead of a file, such as
+     * the body of an HTTP response. The stream is closed by end.
+     * @param target The OutputStream to write the page to.
+     * @param fontName The name of the font of the page.
+     */
+    public HtmlAsciiOutput(OutputStream target, String fontName) {
+        this.fontName = fontName;
+        this.filename = null;
+        this.target = target;
     }
 
     @Override
     public void out(char[][] chars) {
-        try(BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            writer.write(String.format(
+        begin(chars[0].length);
+        for(int y = 0 ; y < chars.length ; y++) {
+            outRow(chars[y]);
+        }
+        end();
+    }
+
+    @Override
+    public void begin(int rowLength) {
+        length = 0;
+        try {
+            if (target != null) {
+                stream = target;
+            } else {
+                OutputStream file = Channels.newOutputStream(FileChannel.open(Paths.get(filename),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING));
+                stream = filename.endsWith(GZIP_EXTENSION) ? new GZIPOutputStream(file, FLUSH_SIZE) : file;
+            }
+            append((
                 "<!DOCTYPE html>\n"+
                 "<html>\n"+
                 "<body style=\""+
                     "\tCOLOR:#000000;"+
                     "\tTEXT-ALIGN:center;"+
-                    "\tFONT-SIZE:1px;\">\n"+
+                    "\tFONT-SIZE:1px;\">\n").getBytes(StandardCharsets.UTF_8));
+            append(paragraphStart(rowLength));
+        } catch(IOException e) {
+            fail();
+        }
+    }
+
+    @Override
+    public void outRow(char[] row) {
+        if (stream == null) {
+            return;
+        }
+        ensureCapacity(MAX_CHAR_SIZE * row.length + LINE_SEPARATOR.length);
+        for (int x = 0; x < row.length ; x++) {
+            appendChar(row[x]);
+        }
+        endRow();
+    }
+
+    @Override
+    public void end() {
+        if (stream == null) {
+            return;
+        }
+        append((
+            "</p>\n"+
+            "</body>\n"+
+            "</html>\n").getBytes(StandardCharsets.UTF_8));
+        if (stream == null) {
+            return;
+        }
+        try {
+            flush();
+            stream.close();
+            stream = null;
+        } catch(IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * Returns the opening tag of the paragraph holding the rows, with a font size fitting
+     * rows of the given length in the page width.
+     */
+    byte[] paragraphStart(int rowLength) {
+        return String.format(
                 "<p style=\""+
                     "\twhite-space:pre;"+
                     "\tFONT-FAMILY:%s;"+
                     "\tFONT-SIZE:%frem;"+
                     "\tLETTER-SPACING:0.15em;"+
                     "\tLINE-HEIGHT:%fem;\">\n",
-                    fontName, BASE_FONT_SIZE/chars[0].length, BASE_LINE_SPACING));
-
-            for(int y = 0 ; y < chars.length ; y++) {
-                for (int x = 0; x < chars[y].length ; x++) {
-                    String htmlRep;
-                    switch(chars[y][x]) {
-                        case '<': htmlRep = "&lt;";  break;
-                        case '>': htmlRep = "&gt;";  break;
-                        case '&': htmlRep = "&amp;"; break;
-                        default:  htmlRep = String.valueOf(chars[y][x]);
-                    }
-                    writer.write(htmlRep);
-                }
-                writer.newLine();
+                fontName, BASE_FONT_SIZE/rowLength, BASE_LINE_SPACING).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends bytes to the buffer, making room for them first.
+     */
+    void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * Appends a char to the buffer, escaped for HTML and encoded in UTF-8.
+     * The caller made room for MAX_CHAR_SIZE bytes.
+     */
+    void appendChar(char c) {
+        if (c < ESCAPES.length) {
+            byte[] htmlRep = ESCAPES[c];
+            if (htmlRep.length == 1) {
+                buffer[length++] = htmlRep[0];
+            } else {
+                System.arraycopy(htmlRep, 0, buffer, length, htmlRep.length);
+                length += htmlRep.length;
             }
-            writer.write(
-                "</p>\n"+
-                "</body>\n"+
-                "</html>\n");
-        } catch(IOException e) {
-            Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+        } else {
+            byte[] bytes = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+    }
+
+    /**
+     * Appends the line separator to the buffer, the caller made room for it.
+     */
+    void endRow() {
+        System.arraycopy(LINE_SEPARATOR, 0, buffer, length, LINE_SEPARATOR.length);
+        length += LINE_SEPARATOR.length;
+    }
+
+    /**
+     * Return whether the output file is open for writing.
+     */
+    boolean isOpen() {
+        return stream != null;
+    }
+
+    /**
+     * Makes room for size more bytes in the buffer, writing it out if needed.
+     */
+    void ensureCapacity(int size) {
+        if (length + size <= buffer.length) {
+            return;
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            fail();
+        }
+        if (size > buffer.length) {
+            buffer = new byte[size];
+        }
+    }
+
+    private void flush() throws IOException {
+        if (stream != null && length > 0) {
+            stream.write(buffer, 0, length);
+        }
+        length = 0;
+    }
+
+    private void fail() {
+        Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename == null ? target : filename));
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+                // The failure was already reported.
+            }
+            stream = null;
         }
+        length = 0;
     }
 }
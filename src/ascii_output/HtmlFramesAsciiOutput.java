@@ -0,0 +1,39 @@
+package ascii_output;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output a sequence of frames to a single HTML file, one paragraph per frame.
+ * The file is opened with the first frame and completed by close.
+ */
+public class HtmlFramesAsciiOutput extends HtmlAsciiOutput implements AsciiFrameOutput {
+    private static final byte[] PARAGRAPH_END = "</p>\n".getBytes(StandardCharsets.UTF_8);
+    private boolean started;
+
+    public HtmlFramesAsciiOutput(String filename, String fontName) {
+        super(filename, fontName);
+    }
+
+    @Override
+    public void outFrame(char[][] chars) {
+        int rowLength = chars.length == 0 ? 0 : chars[0].length;
+        if (!started) {
+            begin(rowLength);
+            started = true;
+        } else if (isOpen()) {
+            append(PARAGRAPH_END);
+            append(paragraphStart(rowLength));
+        }
+        for (char[] row : chars) {
+            outRow(row);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (started) {
+            end();
+            started = false;
+        }
+    }
+}
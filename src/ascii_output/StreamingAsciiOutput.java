@@ -0,0 +1,22 @@
+package ascii_output;
+
+/**
+ * An AsciiOutput that can also receive the ASCII art one row at a time,
+ * so rows are output as soon as they are computed.
+ */
+public interface StreamingAsciiOutput extends AsciiOutput {
+    /**
+     * Start the output of ASCII art with rows of the given length
+     */
+    void begin(int rowLength);
+
+    /**
+     * Output the next row of chars
+     */
+    void outRow(char[] row);
+
+    /**
+     * Finish the output started by begin
+     */
+    void end();
+}
@@ -0,0 +1,44 @@
+package ascii_output;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+/**
+ * Output a sequence of frames to a single text file, laid out as on the console.
+ * Frames follow each other, each one ending with a line holding a form feed.
+ */
+public class TextFramesAsciiOutput extends ConsoleAsciiOutput implements AsciiFrameOutput {
+    private static final byte[] FRAME_SEPARATOR = ("\f" + System.lineSeparator()).getBytes();
+    private final String filename;
+
+    /**
+     * Constructs a TextFramesAsciiOutput writing to the given file.
+     * @param filename The name of the file, created or truncated.
+     * @throws IOException If the file can not be opened.
+     */
+    public TextFramesAsciiOutput(String filename) throws IOException {
+        super(new PrintStream(Files.newOutputStream(Paths.get(filename)), false));
+        this.filename = filename;
+    }
+
+    @Override
+    public void outFrame(char[][] chars) {
+        begin(chars.length == 0 ? 0 : chars[0].length);
+        for (char[] row : chars) {
+            outRow(row);
+        }
+        ensureCapacity(FRAME_SEPARATOR.length);
+        append(FRAME_SEPARATOR);
+        end();
+    }
+
+    @Override
+    public void close() {
+        if (!closeStream()) {
+            Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+        }
+    }
+}
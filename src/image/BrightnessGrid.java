@@ -0,0 +1,126 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+/**
+ * The BrightnessGrid class holds the average brightness of every tile of a sliced image,
+ * and optionally its average color.
+ * Values are stored row after row in a single primitive array, so any tile can be read
+ * or written by its row and column.
+ */
+public class BrightnessGrid {
+    private final double[] values;
+    private final int[] colors;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * Constructs an empty BrightnessGrid with the provided dimensions.
+     * @param rows An int representing the number of tile rows.
+     * @param cols An int representing the number of tile columns.
+     */
+    public BrightnessGrid(int rows, int cols) {
+        this(rows, cols, false);
+    }
+
+    /**
+     * Constructs an empty BrightnessGrid with the provided dimensions.
+     * @param rows An int representing the number of tile rows.
+     * @param cols An int representing the number of tile columns.
+     * @param withColors true to also hold the average color of every tile.
+     */
+    public BrightnessGrid(int rows, int cols, boolean withColors) {
+        this.values = new double[rows * cols];
+        this.colors = withColors ? new int[rows * cols] : null;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Returns a copy of the grid, with its own arrays.
+     * @return A new BrightnessGrid holding the same values.
+     */
+    public BrightnessGrid copy() {
+        BrightnessGrid copy = new BrightnessGrid(rows, cols, colors != null);
+        System.arraycopy(values, 0, copy.values, 0, values.length);
+        if (colors != null) {
+            System.arraycopy(colors, 0, copy.colors, 0, colors.length);
+        }
+        return copy;
+    }
+
+    /**
+     * Return the number of tile rows.
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Return the number of tile columns.
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Return the brightness of tile (row,col).
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @return A double representing the tile brightness.
+     */
+    public double get(int row, int col) {
+        return values[row * cols + col];
+    }
+
+    /**
+     * Sets the brightness of tile (row,col).
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @param brightness A double representing the tile brightness.
+     */
+    public void set(int row, int col, double brightness) {
+        values[row * cols + col] = brightness;
+    }
+
+    /**
+     * Return whether the grid holds tile colors.
+     * @return true if the grid holds tile colors.
+     */
+    public boolean hasColors() {
+        return colors != null;
+    }
+
+    /**
+     * Return the average color of tile (row,col) as packed RGB.
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @return An int representing the tile color.
+     */
+    public int getColor(int row, int col) {
+        return colors[row * cols + col];
+    }
+
+    /**
+     * Sets the average color of tile (row,col).
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @param rgb An int representing the tile color as packed RGB.
+     */
+    public void setColor(int row, int col, int rgb) {
+        colors[row * cols + col] = rgb;
+    }
+
+    /**
+     * Return the tile colors as packed RGB, stored row after row.
+     * The returned array is the grid's own, it should not be modified.
+     * @return The tile colors, or null if the grid holds none.
+     */
+    public int[] getColors() {
+        return colors;
+    }
+}
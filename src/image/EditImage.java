@@ -4,10 +4,8 @@
  */
 package image;
 
-import java.awt.*;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
 
 /**
  * The EditImage class represents an image editing tool that performs padding, slicing,
@@ -15,9 +13,18 @@ import java.util.LinkedHashMap;
  * It allows users to modify images for further processing.
  */
 public class EditImage {
+    private static final long WHITE_LUMINANCE = IntegralImage.luminance(0xffffff);
+    private static final LuminanceKernel KERNEL = LuminanceKernel.get();
     private Image image;
-    private LinkedHashMap<Image, Double> subImages;
-    private Color [][] newPixelArray;
+    private Image orgImage;
+    private int resolution;
+    private IntegralImage integralImage;
+    private volatile boolean tablesStale;
+    private BrightnessGrid brightnessGrid;
+    private BrightnessPyramid pyramid;
+    private boolean fitted;
+    private int xPadding;
+    private int yPadding;
 
     /**
      * Constructs an EditImage object with the provided original image and resolution.
@@ -26,12 +33,160 @@ public class EditImage {
      * @throws IOException If there is an error loading the image file.
      */
     public EditImage(Image orgImage, int resolution) throws IOException{
+        this(orgImage);
+        this.brightnessGrid = sliceImage(resolution, false);
+    }
+
+    /**
+     * Constructs an EditImage object with the provided original image, without slicing it.
+     * setResolution must be called before the brightness grid is read.
+     * @param orgImage The original Image object to edit.
+     */
+    public EditImage(Image orgImage){
+        this.orgImage = orgImage;
         this.image = paddImage(orgImage);
-        this.subImages = sliceImage(resolution);
+        this.integralImage = new IntegralImage(orgImage);
+    }
+
+    /**
+     * Replaces the original image with another one of the same dimensions, such as the next
+     * frame of a video. The summed-area tables are rebuilt in place when next needed, the
+     * brightness grid is only computed again by setResolution or fillBrightnessGrid.
+     * @param orgImage The new Image, with the dimensions of the current one.
+     * @throws IllegalArgumentException If the image dimensions differ from the current ones.
+     */
+    public void setImage(Image orgImage) throws IllegalArgumentException {
+        if (orgImage.getWidth() != this.orgImage.getWidth() || orgImage.getHeight() != this.orgImage.getHeight()) {
+            throw new IllegalArgumentException();
+        }
+        this.orgImage = orgImage;
+        this.image = paddImage(orgImage);
+        tablesStale = true;
+        pyramid = null;
+    }
+
+    /**
+     * Replaces the original image with another one of the same dimensions, recomputing the
+     * brightness grid only for the tiles whose pixels changed.
+     * The rows of both images are compared block by block, and the changed tiles are summed
+     * straight from their pixels, so the cost grows with the changed area. The grid is a new
+     * object, the one previously returned by getBrightnessGrid is left unchanged.
+     * The previous image must not have been modified in place. A grid set by
+     * setFittedResolution is computed again whole, its tiles not being aligned on pixels.
+     * @param orgImage The new Image, with the dimensions of the current one.
+     * @return The number of tiles whose brightness was recomputed.
+     * @throws IllegalArgumentException If the image dimensions differ from the current ones.
+     */
+    public int updateImage(Image orgImage) throws IllegalArgumentException {
+        Image previous = this.orgImage;
+        setImage(orgImage);
+        if (brightnessGrid == null) {
+            return 0;
+        }
+        if (fitted) {
+            brightnessGrid = fittedGrid(resolution, brightnessGrid.getRows(), brightnessGrid.hasColors());
+            return brightnessGrid.getRows() * resolution;
+        }
+        int size = image.getWidth() / resolution;
+        BrightnessGrid grid = brightnessGrid.copy();
+        boolean[] changed = changedTiles(previous, orgImage, size, grid.getRows(), grid.getCols());
+        int count = 0;
+        for (int tile = 0; tile < changed.length; tile++) {
+            if (changed[tile]) {
+                int row = tile / grid.getCols();
+                int col = tile % grid.getCols();
+                if (grid.hasColors()) {
+                    setColorTile(grid, row, col, size);
+                } else {
+                    grid.set(row, col, tileBrightness(row, col, size, true));
+                }
+                count++;
+            }
+        }
+        brightnessGrid = grid;
+        return count;
+    }
+
+    /**
+     * Slices the padded image into an existing grid, whose number of columns is the resolution.
+     * Nothing is allocated, so a sequence of frames can reuse the same grids. The tile colors
+     * are filled in too if the grid holds colors.
+     * @param grid The BrightnessGrid to fill, as large as the grid of its resolution.
+     * @throws IllegalArgumentException If the grid dimensions do not match the image.
+     */
+    public void fillBrightnessGrid(BrightnessGrid grid) throws IllegalArgumentException {
+        int size = image.getWidth() / grid.getCols();
+        if (size == 0 || grid.getRows() != image.getHeight() / size) {
+            throw new IllegalArgumentException();
+        }
+        refreshTables();
+        fillGrid(grid, size);
+    }
+
+    /**
+     * Re-slices the padded image in the given resolution.
+     * The first slicing reads every tile from the summed-area tables. When the resolution
+     * changes after that, the grids of all the legal resolutions are built at once in a
+     * brightness pyramid, and from then on changing the resolution only picks a grid.
+     * The pyramid is dropped whenever the image changes.
+     * @param resolution An integer representing the new resolution of the edited image.
+     */
+    public void setResolution(int resolution){
+        setResolution(resolution, false);
+    }
+
+    /**
+     * Re-slices the padded image in the given resolution, with or without the average color of
+     * every tile. Colored tiles are summed from their pixels, which give both their brightness
+     * and their color in a single pass. Switching between the two starts over from a single
+     * slicing, and the pyramid of the other mode is dropped.
+     * @param resolution An integer representing the new resolution of the edited image.
+     * @param withColor true for a grid that also holds the color of every tile.
+     */
+    public void setResolution(int resolution, boolean withColor){
+        if (brightnessGrid == null || fitted || brightnessGrid.hasColors() != withColor) {
+            if (pyramid != null && pyramid.hasColors() != withColor) {
+                pyramid = null;
+            }
+            this.fitted = false;
+            this.brightnessGrid = sliceImage(resolution, withColor);
+            return;
+        }
+        BrightnessGrid level = pyramidLevel(resolution, withColor);
+        this.resolution = resolution;
+        this.brightnessGrid = level != null ? level : sliceImage(resolution, withColor);
+    }
+
+    /**
+     * Slices the original image itself, without padding, in any number of columns.
+     * The tiles are as close to square as the image allows: their number of rows is the
+     * image height in tile widths, rounded. Tile boundaries fall at fractional pixel
+     * positions, and the pixels they cross count for the part of their area in each tile,
+     * read from the summed-area table interpolated at the tile corners.
+     * The grid stays fitted until setResolution is called.
+     * @param resolution An integer representing the number of columns, from 1 to the image width.
+     */
+    public void setFittedResolution(int resolution){
+        setFittedResolution(resolution, false);
+    }
+
+    /**
+     * Slices the original image itself in any number of columns, as setFittedResolution(int)
+     * does, with or without the average color of every tile. Colored tiles are summed in a
+     * single pass over the pixels, every pixel weighing the part of its area in each tile,
+     * which gives both their brightness and their color.
+     * @param resolution An integer representing the number of columns, from 1 to the image width.
+     * @param withColor true for a grid that also holds the color of every tile.
+     */
+    public void setFittedResolution(int resolution, boolean withColor){
+        this.fitted = true;
+        this.resolution = resolution;
+        this.brightnessGrid = fittedGrid(resolution, fittedRows(resolution), withColor);
     }
 
     /**
      * Gets the padded image.
+     * The padding is not stored, the returned image is a view of the original one.
      * @return An Image object representing the padded image.
      */
     public Image getPaddImage(){
@@ -39,93 +194,318 @@ public class EditImage {
     }
 
     /**
-     * Gets the sub-images generated by slicing the original image.
-     * @return A LinkedHashMap mapping sub-images to their brightness values.
+     * Gets the brightness of the tiles generated by slicing the padded image.
+     * @return A BrightnessGrid with one value per tile.
      */
-    public LinkedHashMap<Image, Double> getSubImages(){
-        return subImages;
+    public BrightnessGrid getBrightnessGrid(){
+        return brightnessGrid;
     }
 
-    private LinkedHashMap<Image, Double> sliceImage(int resolution){
-        int size = image.getWidth()/resolution;
-        LinkedHashMap<Image, Double> sliceImages = new LinkedHashMap<>();
-        int row = 0 , col = 0;
-        Color[][] partArray = new Color[size][size];
-        while (row < image.getHeight()) {
-            while (col < image.getWidth()) {
-                for (int i = 0; i < size; i++) {
-                    for (int j = 0; j < size; j++) {
-                        partArray[i][j] = image.getPixel(row, col);
-                        col++;
-                    } col = col-size;
-                    row++;
-                } row = row - size;
-                col += size;
-                Image partImage = new Image(partArray, size, size);
-                double brightnessAvg = imageBrightness(partImage, size);
-                sliceImages.put(partImage, brightnessAvg);
-            } row += size;
-            col = 0;
-        } return sliceImages;
-    }
-
-    private double imageBrightness(Image image, int size){
-        double greyPixel = 0;
-        double greyNormal = 0;
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                Color pixel = image.getPixel(i, j);
-                greyPixel = pixel.getRed() * 0.2126 + pixel.getGreen() * 0.7152
-                        + pixel.getBlue() * 0.0722;
-                greyNormal += greyPixel;
+    /**
+     * Gets the brightness grid of the padded image in another resolution, leaving the current
+     * one unchanged, such as a finer grid giving the brightness of parts of the current tiles.
+     * The grid is read from the brightness pyramid, which is built if needed.
+     * The returned grid is shared and should not be modified.
+     * @param resolution An integer representing the resolution of the grid.
+     * @return A BrightnessGrid with one value per tile of that resolution.
+     */
+    public BrightnessGrid getBrightnessGrid(int resolution){
+        BrightnessGrid level = pyramidLevel(resolution, false);
+        return level != null ? level : newGrid(resolution, false);
+    }
+
+    /**
+     * Gets a grid of the original image itself, without padding, in the given number of columns
+     * and rows, leaving the current grid unchanged. The tiles are weighted as setFittedResolution
+     * does, so multiplying the columns and rows of a fitted grid by the same number divides each
+     * of its tiles into that many cells on each side.
+     * @param resolution An integer representing the number of columns, from 1 to the image width.
+     * @param rows The number of rows of the grid.
+     * @return A BrightnessGrid with one value per tile.
+     */
+    public BrightnessGrid getBrightnessGrid(int resolution, int rows){
+        return fittedGrid(resolution, rows, false);
+    }
+
+    /**
+     * Gets the average brightness of one tile of the padded image.
+     * Tiles are read independently, so this may be called from several threads at once.
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @param size The side length of a tile in pixels.
+     * @return A double representing the tile brightness.
+     */
+    public double getTileBrightness(int row, int col, int size){
+        refreshTables();
+        return tileBrightness(row, col, size, false);
+    }
+
+    /**
+     * Gets the average color of one tile of the padded image, summed from its pixels.
+     * @param row The row of the tile.
+     * @param col The column of the tile.
+     * @param size The side length of a tile in pixels.
+     * @return An int representing the tile color as packed RGB.
+     */
+    public int getTileColor(int row, int col, int size){
+        return tileColor(row, col, size);
+    }
+
+    private double tileBrightness(int row, int col, int size, boolean fromPixels){
+        // The part of the tile outside the original image is padding and counts as white.
+        int row0 = Math.max(row * size - yPadding, 0);
+        int col0 = Math.max(col * size - xPadding, 0);
+        int row1 = Math.min((row + 1) * size - yPadding, orgImage.getHeight());
+        int col1 = Math.min((col + 1) * size - xPadding, orgImage.getWidth());
+        long tileArea = (long) size * size;
+        long sum = tileArea * WHITE_LUMINANCE;
+        if (row0 < row1 && col0 < col1) {
+            sum += (fromPixels ? pixelSum(row0, col0, row1, col1) : integralImage.sum(row0, col0, row1, col1))
+                    - (long) (row1 - row0) * (col1 - col0) * WHITE_LUMINANCE;
+        }
+        return sum / (255.0 * IntegralImage.LUMINANCE_SCALE) / tileArea;
+    }
+
+    private int tileColor(int row, int col, int size){
+        long[] sums = new long[3];
+        long tileArea = (long) size * size;
+        long covered = channelSums(row, col, size, sums);
+        long white = (tileArea - covered) * 0xff;
+        return (average(sums[0] + white, tileArea) << 16) | (average(sums[1] + white, tileArea) << 8)
+                | average(sums[2] + white, tileArea);
+    }
+
+    private void setColorTile(BrightnessGrid grid, int row, int col, int size){
+        // The luminance is a weighted sum of the channels, so the channel sums give the exact
+        // luminance sum of the tile too.
+        long[] sums = new long[3];
+        long tileArea = (long) size * size;
+        long covered = channelSums(row, col, size, sums);
+        long white = (tileArea - covered) * 0xff;
+        long red = sums[0] + white;
+        long green = sums[1] + white;
+        long blue = sums[2] + white;
+        long luminance = IntegralImage.RED_WEIGHT * red + IntegralImage.GREEN_WEIGHT * green
+                + IntegralImage.BLUE_WEIGHT * blue;
+        grid.set(row, col, luminance / (255.0 * IntegralImage.LUMINANCE_SCALE) / tileArea);
+        grid.setColor(row, col, (average(red, tileArea) << 16) | (average(green, tileArea) << 8)
+                | average(blue, tileArea));
+    }
+
+    private long channelSums(int row, int col, int size, long[] sums){
+        // The part of the tile outside the original image is padding, left to the caller.
+        int row0 = Math.max(row * size - yPadding, 0);
+        int col0 = Math.max(col * size - xPadding, 0);
+        int row1 = Math.min((row + 1) * size - yPadding, orgImage.getHeight());
+        int col1 = Math.min((col + 1) * size - xPadding, orgImage.getWidth());
+        if (row0 >= row1 || col0 >= col1) {
+            return 0;
+        }
+        int[] raster = orgImage.getRaster();
+        for (int y = row0; y < row1; y++) {
+            int index = orgImage.getOffset() + y * orgImage.getStride();
+            for (int x = col0; x < col1; x++) {
+                int rgb = raster[index + x];
+                sums[0] += (rgb >> 16) & 0xff;
+                sums[1] += (rgb >> 8) & 0xff;
+                sums[2] += rgb & 0xff;
             }
         }
-        return (greyNormal/255)/(size*size);
+        return (long) (row1 - row0) * (col1 - col0);
     }
 
-    private Image paddImage(Image orgImage) throws IOException {
-        int width = orgImage.getWidth();
-        int height = orgImage.getHeight();;
-        int widthPowerOf2 = getClosestPowerOf2(width);
-        int heightPowerOf2 = getClosestPowerOf2(height);
-        int yPadding = (heightPowerOf2-height)/2;
-        int xPadding = (widthPowerOf2-width)/2;
-        if(widthPowerOf2 == width && heightPowerOf2 == height){
-            return orgImage;
+    private long pixelSum(int row0, int col0, int row1, int col1){
+        int[] raster = orgImage.getRaster();
+        long sum = 0;
+        for (int y = row0; y < row1; y++) {
+            int index = orgImage.getOffset() + y * orgImage.getStride();
+            sum += KERNEL.sum(raster, index + col0, index + col1);
         }
-        newPixelArray = new Color[heightPowerOf2][widthPowerOf2];
-        int row = 0;
-        fillWhitePixels(row,yPadding,widthPowerOf2);
-        row += yPadding;
-        fillOriginalPixel(row,widthPowerOf2, heightPowerOf2,xPadding,yPadding, orgImage);
-        row+=height;
-        fillWhitePixels(row,heightPowerOf2,widthPowerOf2);
-        return new Image(newPixelArray, widthPowerOf2, heightPowerOf2);
+        return sum;
     }
 
-    private void fillWhitePixels(int row, int yPadding , int widthPowerOf2){
-        for(; row < yPadding; row++){
-            newPixelArray[row] = new Color[widthPowerOf2];
-            Arrays.fill(newPixelArray[row], Color.WHITE);
+    private boolean[] changedTiles(Image previous, Image next, int size, int rows, int cols){
+        boolean[] changed = new boolean[rows * cols];
+        int[] before = previous.getRaster();
+        int[] after = next.getRaster();
+        int width = next.getWidth();
+        for (int y = 0; y < next.getHeight(); y++) {
+            int beforeRow = previous.getOffset() + y * previous.getStride();
+            int afterRow = next.getOffset() + y * next.getStride();
+            int tileRow = (y + yPadding) / size;
+            // Every mismatch marks its tile, and the search resumes at the next tile column.
+            int from = 0;
+            while (from < width) {
+                int x = Arrays.mismatch(before, beforeRow + from, beforeRow + width,
+                        after, afterRow + from, afterRow + width);
+                if (x < 0) {
+                    break;
+                }
+                int col = (from + x + xPadding) / size;
+                changed[tileRow * cols + col] = true;
+                from = (col + 1) * size - xPadding;
             }
+        }
+        return changed;
     }
-    private void fillOriginalPixel(int row,int widthPowerOf2,
-        int heightPowerOf2,int xPadding,int yPadding, Image orgImage) {
-        for (; row < (heightPowerOf2 - yPadding); row++) {
-            newPixelArray[row] = new Color[widthPowerOf2];
-            int col = 0;
-            for (; col < xPadding; col++) {
-                newPixelArray[row][col] = Color.WHITE;
+
+    private void refreshTables(){
+        if (tablesStale) {
+            synchronized (this) {
+                if (tablesStale) {
+                    integralImage.update(orgImage);
+                    tablesStale = false;
+                }
             }
-            for (; col < (widthPowerOf2 - xPadding); col++) {
-                newPixelArray[row][col] = orgImage.getPixel(row - yPadding, col - xPadding);
+        }
+    }
+
+    static int average(long sum, long area){
+        return (int) ((sum + area / 2) / area);
+    }
+
+    private BrightnessGrid pyramidLevel(int resolution, boolean withColor){
+        if (image.getWidth() % resolution != 0) {
+            return null;
+        }
+        int size = image.getWidth() / resolution;
+        // A pyramid with colors also serves the grids without them, such as the shape cells.
+        // It starts at the smallest tile size asked for so far, rather than at single pixels.
+        if (pyramid == null || withColor && !pyramid.hasColors() || size < pyramid.getBaseSize()) {
+            int baseSize = pyramid == null ? size : Math.min(size, pyramid.getBaseSize());
+            pyramid = new BrightnessPyramid(orgImage, image.getWidth(), image.getHeight(),
+                    xPadding, yPadding, baseSize, withColor);
+        }
+        return pyramid.getLevel(size);
+    }
+
+    private BrightnessGrid sliceImage(int resolution, boolean withColor){
+        this.resolution = resolution;
+        return newGrid(resolution, withColor);
+    }
+
+    private BrightnessGrid newGrid(int resolution, boolean withColor){
+        refreshTables();
+        int size = image.getWidth()/resolution;
+        BrightnessGrid grid = new BrightnessGrid(image.getHeight()/size, resolution, withColor);
+        fillGrid(grid, size);
+        return grid;
+    }
+
+    private int fittedRows(int resolution){
+        return (int) Math.max(Math.round((double) orgImage.getHeight() * resolution / orgImage.getWidth()), 1);
+    }
+
+    private BrightnessGrid fittedGrid(int cols, int rows, boolean withColor){
+        BrightnessGrid grid = new BrightnessGrid(rows, cols, withColor);
+        double width = orgImage.getWidth();
+        double height = orgImage.getHeight();
+        double tileArea = width / cols * (height / rows);
+        double[] bounds = new double[cols + 1];
+        for (int col = 0; col <= cols; col++) {
+            bounds[col] = col * width / cols;
+        }
+        if (withColor) {
+            fittedColors(grid, bounds, tileArea);
+            return grid;
+        }
+        refreshTables();
+        // The sums up to every tile corner are read once, for the tiles on both sides of it.
+        double[] above = new double[cols + 1];
+        double[] below = new double[cols + 1];
+        cornerSums(0, bounds, above);
+        for (int row = 0; row < rows; row++) {
+            cornerSums((row + 1) * height / rows, bounds, below);
+            for (int col = 0; col < cols; col++) {
+                grid.set(row, col, tileSum(above, below, col) / (255.0 * IntegralImage.LUMINANCE_SCALE) / tileArea);
             }
-            for (; col < widthPowerOf2; col++) {
-                newPixelArray[row][col] = Color.WHITE;
+            double[] swap = above;
+            above = below;
+            below = swap;
+        }
+        return grid;
+    }
+
+    private void cornerSums(double row, double[] bounds, double[] sums){
+        for (int col = 0; col < bounds.length; col++) {
+            sums[col] = integralImage.sumTo(row, bounds[col]);
+        }
+    }
+
+    private void fittedColors(BrightnessGrid grid, double[] bounds, double tileArea){
+        // Every pixel adds its channels to the tiles it overlaps, weighted by the overlapped area,
+        // and the brightness of a tile is the weighted luminance of its channel sums.
+        int[] raster = orgImage.getRaster();
+        int width = orgImage.getWidth();
+        double height = orgImage.getHeight();
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        double[][] sums = new double[3][cols];
+        for (int row = 0; row < rows; row++) {
+            double top = row * height / rows;
+            double bottom = (row + 1) * height / rows;
+            for (int y = (int) top; y < bottom && y < height; y++) {
+                double rowWeight = Math.min(y + 1, bottom) - Math.max(y, top);
+                int index = orgImage.getOffset() + y * orgImage.getStride();
+                for (int col = 0; col < cols; col++) {
+                    double left = bounds[col];
+                    double right = bounds[col + 1];
+                    for (int x = (int) left; x < right && x < width; x++) {
+                        double weight = rowWeight * (Math.min(x + 1, right) - Math.max(x, left));
+                        int rgb = raster[index + x];
+                        sums[0][col] += weight * ((rgb >> 16) & 0xff);
+                        sums[1][col] += weight * ((rgb >> 8) & 0xff);
+                        sums[2][col] += weight * (rgb & 0xff);
+                    }
+                }
+            }
+            for (int col = 0; col < cols; col++) {
+                double luminance = IntegralImage.RED_WEIGHT * sums[0][col]
+                        + IntegralImage.GREEN_WEIGHT * sums[1][col] + IntegralImage.BLUE_WEIGHT * sums[2][col];
+                grid.set(row, col, luminance / (255.0 * IntegralImage.LUMINANCE_SCALE) / tileArea);
+                grid.setColor(row, col, (fittedAverage(sums[0][col], tileArea) << 16)
+                        | (fittedAverage(sums[1][col], tileArea) << 8) | fittedAverage(sums[2][col], tileArea));
+            }
+            for (double[] channel : sums) {
+                Arrays.fill(channel, 0);
             }
         }
     }
-    private int getClosestPowerOf2(int x){
+
+    private static double tileSum(double[] above, double[] below, int col){
+        return below[col + 1] - above[col + 1] - below[col] + above[col];
+    }
+
+    private static int fittedAverage(double sum, double area){
+        return (int) Math.min(Math.max(Math.round(sum / area), 0), 0xff);
+    }
+
+    private void fillGrid(BrightnessGrid grid, int size){
+        for (int row = 0; row < grid.getRows(); row++) {
+            for (int col = 0; col < grid.getCols(); col++) {
+                if (grid.hasColors()) {
+                    setColorTile(grid, row, col, size);
+                } else {
+                    grid.set(row, col, tileBrightness(row, col, size, false));
+                }
+            }
+        }
+    }
+
+    private Image paddImage(Image orgImage) {
+        int width = orgImage.getWidth();
+        int height = orgImage.getHeight();
+        int widthPowerOf2 = getClosestPowerOf2(width);
+        int heightPowerOf2 = getClosestPowerOf2(height);
+        yPadding = (heightPowerOf2-height)/2;
+        xPadding = (widthPowerOf2-width)/2;
+        if(widthPowerOf2 == width && heightPowerOf2 == height){
+            return orgImage;
+        }
+        return new PaddedImage(orgImage, widthPowerOf2, heightPowerOf2);
+    }
+
+    static int getClosestPowerOf2(int x){
         if((x & (x-1)) == 0){
             return x;
         }
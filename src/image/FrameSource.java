@@ -0,0 +1,35 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A FrameSource reads a sequence of frames of the same dimensions, such as the frames of a video.
+ * Every frame is decoded into a packed RGB array supplied by the caller, so a sequence of any
+ * length can be read into a fixed set of buffers.
+ */
+public interface FrameSource extends Closeable {
+    /**
+     * Return the width of the frames.
+     * @return The frame width.
+     */
+    int getWidth();
+
+    /**
+     * Return the height of the frames.
+     * @return The frame height.
+     */
+    int getHeight();
+
+    /**
+     * Reads the next frame into a packed RGB array, stored row after row.
+     * @param pixels An int array of length getWidth() * getHeight() to read the frame into.
+     * @return true if a frame was read, false at the end of the sequence.
+     * @throws IOException If the frame can not be read or its dimensions differ from the first one.
+     */
+    boolean readFrame(int[] pixels) throws IOException;
+}
@@ -7,15 +7,25 @@ package image;
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * A package-private class of the package image.
+ * The pixels are kept in a single packed RGB int array (one int per pixel, row after row),
+ * so an image costs one object no matter how many pixels it has.
  * @author Dan Nirel
  */
 public class Image {
-    private final Color[][] pixelArray;
+    private final int[] pixels;
+    private final int offset;
+    private final int stride;
     private final int width;
     private final int height;
 
@@ -26,14 +36,31 @@ public class Image {
      */
     public Image(String filename) throws IOException {
         BufferedImage im = ImageIO.read(new File(filename));
+        if (im == null) {
+            throw new IOException(filename);
+        }
         width = im.getWidth();
         height = im.getHeight();
-        pixelArray = new Color[height][width];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                pixelArray[i][j] = new Color(im.getRGB(j, i));
-            }
+        offset = 0;
+        stride = width;
+        pixels = readPixels(im, width, height);
+    }
+
+    /**
+     * Constructs an Image object from the bytes of a PNG/JPEG file, such as an upload.
+     * @param input An InputStream of the image file bytes.
+     * @throws IOException If the stream does not hold a readable image.
+     */
+    public Image(InputStream input) throws IOException {
+        BufferedImage im = ImageIO.read(input);
+        if (im == null) {
+            throw new IOException("not a PNG/JPEG image");
         }
+        width = im.getWidth();
+        height = im.getHeight();
+        offset = 0;
+        stride = width;
+        pixels = readPixels(im, width, height);
     }
 
     /**
@@ -43,7 +70,37 @@ public class Image {
      * @param height An int representing the height of the image.
      */
     public Image(Color[][] pixelArray, int width, int height) {
-        this.pixelArray = pixelArray;
+        this(new int[width * height], width, height);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                pixels[i * width + j] = pixelArray[i][j].getRGB();
+            }
+        }
+    }
+
+    /**
+     * Constructs an Image object over a packed RGB pixel array, stored row after row.
+     * The array is used as is and is not copied.
+     * @param pixels An int array of packed RGB values of length width * height.
+     * @param width An int representing the width of the image.
+     * @param height An int representing the height of the image.
+     */
+    public Image(int[] pixels, int width, int height) {
+        this(pixels, 0, width, width, height);
+    }
+
+    /**
+     * Constructs an Image object viewing a rectangle of a packed RGB pixel array.
+     * @param pixels The packed RGB pixel array.
+     * @param offset The index of the top left pixel of the view.
+     * @param stride The number of array entries between two vertically adjacent pixels.
+     * @param width An int representing the width of the view.
+     * @param height An int representing the height of the view.
+     */
+    Image(int[] pixels, int offset, int stride, int width, int height) {
+        this.pixels = pixels;
+        this.offset = offset;
+        this.stride = stride;
         this.width = width;
         this.height = height;
     }
@@ -64,10 +121,48 @@ public class Image {
     }
     /**
      * Return the pixel (x,y) color.
+     * Prefer getRGB on hot paths, this method allocates a Color per call.
      * @return The pixel (x,y) color.
      */
     public Color getPixel(int x, int y) {
-        return pixelArray[x][y];
+        return new Color(getRGB(x, y));
+    }
+
+    /**
+     * Return the packed RGB value of pixel (x,y), where x is the row and y the column.
+     * @return The pixel (x,y) packed RGB value.
+     */
+    public int getRGB(int x, int y) {
+        return pixels[offset + x * stride + y];
+    }
+
+    /**
+     * Return the packed RGB pixel array backing this image.
+     * Pixel (x,y) is at index getOffset() + x * getStride() + y.
+     * @return The backing pixel array.
+     * @throws UnsupportedOperationException If the image is a view without pixels of its own,
+     *                                       such as the padded image of EditImage.
+     */
+    public int[] getRaster() {
+        return pixels;
+    }
+
+    /**
+     * Return the index of pixel (0,0) in the backing pixel array.
+     * @return The offset of the image in its raster.
+     * @throws UnsupportedOperationException If the image is a view without pixels of its own.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Return the distance in the backing pixel array between two consecutive rows.
+     * @return The image stride.
+     * @throws UnsupportedOperationException If the image is a view without pixels of its own.
+     */
+    public int getStride() {
+        return stride;
     }
 
     /**
@@ -75,15 +170,7 @@ public class Image {
      * @param fileName The name of the file to save the image to.
      */
     public void saveImage(String fileName) {
-        // Initialize BufferedImage, assuming Color[][] is already properly populated.
-        BufferedImage bufferedImage = new BufferedImage(pixelArray[0].length, pixelArray.length,
-                BufferedImage.TYPE_INT_RGB);
-        // Set each pixel of the BufferedImage to the color from the Color[][].
-        for (int x = 0; x < pixelArray.length; x++) {
-            for (int y = 0; y < pixelArray[x].length; y++) {
-                bufferedImage.setRGB(y, x, pixelArray[x][y].getRGB());
-            }
-        }
+        BufferedImage bufferedImage = toBufferedImage();
         File outputfile = new File(fileName + ".jpeg");
         try {
             ImageIO.write(bufferedImage, "jpeg", outputfile);
@@ -91,4 +178,54 @@ public class Image {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Copies the image into a new BufferedImage.
+     * @return A BufferedImage with the pixels of the image.
+     */
+    BufferedImage toBufferedImage() {
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        bufferedImage.setRGB(0, 0, width, height, pixels, offset, stride);
+        return bufferedImage;
+    }
+
+    private static int[] readPixels(BufferedImage im, int width, int height) {
+        int[] data = new int[width * height];
+        copyPixels(im, data);
+        return data;
+    }
+
+    /**
+     * Copies the pixels of a BufferedImage into a packed RGB array, stored row after row.
+     * Int and 3-byte backed images are copied straight out of their data buffer, everything else
+     * goes through one bulk getRGB call that converts to packed RGB.
+     * @param im The BufferedImage to copy.
+     * @param pixels An int array of length width * height to copy the pixels into.
+     */
+    static void copyPixels(BufferedImage im, int[] pixels) {
+        int width = im.getWidth();
+        int height = im.getHeight();
+        WritableRaster raster = im.getRaster();
+        boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+        if ((im.getType() == BufferedImage.TYPE_INT_RGB || im.getType() == BufferedImage.TYPE_INT_ARGB)
+                && untranslated && raster.getDataBuffer() instanceof DataBufferInt
+                && im.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) im.getSampleModel()).getScanlineStride() == width) {
+            DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            System.arraycopy(buffer.getData(), buffer.getOffset(), pixels, 0, width * height);
+        } else if (im.getType() == BufferedImage.TYPE_3BYTE_BGR && untranslated
+                && raster.getDataBuffer() instanceof DataBufferByte
+                && im.getSampleModel() instanceof ComponentSampleModel
+                && ((ComponentSampleModel) im.getSampleModel()).getScanlineStride() == 3 * width) {
+            DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+            byte[] data = buffer.getData();
+            int index = buffer.getOffset();
+            for (int i = 0; i < width * height; i++, index += 3) {
+                pixels[i] = 0xff000000 | (data[index + 2] & 0xff) << 16 | (data[index + 1] & 0xff) << 8
+                        | (data[index] & 0xff);
+            }
+        } else {
+            im.getRGB(0, 0, width, height, pixels, 0, width);
+        }
+    }
 }
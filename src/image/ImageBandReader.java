@@ -0,0 +1,319 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The ImageBandReader class computes tile brightness of an image file without decoding
+ * the whole image into memory. The power of two padding EditImage applies is accounted
+ * for as white pixels, so the brightness values match the ones of EditImage exactly.
+ * Non-interlaced PNG and non-progressive JPEG files are decoded in a single forward pass
+ * into a raster that only keeps its last RING_ROWS rows, every row being summed into its
+ * tiles as soon as the decoder reports it. Other files, whose decoders do not output rows
+ * in order, are read in a few large bands through source region reads, each of which
+ * decodes the file again from its start.
+ */
+public class ImageBandReader implements Closeable {
+    private static final int RING_ROWS = 16;
+    private static final int BAND_PIXELS = 1 << 22;
+    private static final int MAX_BAND_READS = 8;
+    private static final long WHITE_LUMINANCE = IntegralImage.luminance(0xffffff);
+    private static final LuminanceKernel KERNEL = LuminanceKernel.get();
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final int width;
+    private final int height;
+    private final int paddedWidth;
+    private final int paddedHeight;
+    private int[] rgb;
+    private int size;
+    private int cols;
+    private long[] tileSums;
+    private int tileRows;
+    private int nextTileRow;
+    private double[] brightness;
+    private ObjIntConsumer<double[]> consumer;
+
+    /**
+     * Constructs an ImageBandReader over an image file, reading only its header.
+     * @param filename A String representing the path to the image file.
+     * @throws IOException If the file can not be opened or is not a supported image.
+     */
+    public ImageBandReader(String filename) throws IOException {
+        input = ImageIO.createImageInputStream(new File(filename));
+        if (input == null) {
+            throw new IOException(filename);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException(filename);
+        }
+        reader = readers.next();
+        reader.setInput(input, false, true);
+        width = reader.getWidth(0);
+        height = reader.getHeight(0);
+        paddedWidth = EditImage.getClosestPowerOf2(width);
+        paddedHeight = EditImage.getClosestPowerOf2(height);
+    }
+
+    /**
+     * Return the width of the padded image.
+     * @return The padded image width.
+     */
+    public int getPaddedWidth() {
+        return paddedWidth;
+    }
+
+    /**
+     * Return the height of the padded image.
+     * @return The padded image height.
+     */
+    public int getPaddedHeight() {
+        return paddedHeight;
+    }
+
+    /**
+     * Computes the brightness of every tile of the padded image, one row of tiles at a time
+     * from top to bottom. Every row is passed to the consumer as soon as the last of its
+     * pixels is decoded, along with its index. The array is reused for the next row.
+     * @param size The side length of a tile in pixels.
+     * @param consumer The consumer of the brightness of each tile in a row and of the row index.
+     * @throws IOException If there is an error decoding the image file.
+     */
+    public void readTileRows(int size, ObjIntConsumer<double[]> consumer) throws IOException {
+        this.size = size;
+        this.cols = paddedWidth / size;
+        this.tileRows = paddedHeight / size;
+        this.consumer = consumer;
+        this.nextTileRow = 0;
+        tileSums = new long[cols];
+        brightness = new double[cols];
+        rgb = new int[width];
+        BufferedImage ring = isSequential() ? ringImage() : null;
+        if (ring != null) {
+            readSequential(ring);
+        } else {
+            readBands();
+        }
+        emitTileRows(tileRows);
+    }
+
+    /**
+     * Closes the underlying image reader and file.
+     * @throws IOException If there is an error closing the file.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        input.close();
+    }
+
+    private boolean isSequential() throws IOException {
+        IIOMetadata metadata = reader.getImageMetadata(0);
+        String format = metadata == null ? null : metadata.getNativeMetadataFormatName();
+        if ("javax_imageio_png_1.0".equals(format)) {
+            return "none".equals(attribute(metadata.getAsTree(format), "IHDR", "interlaceMethod"));
+        }
+        if ("javax_imageio_jpeg_image_1.0".equals(format)) {
+            // Progressive JPEG files (process 2) are output in several passes over the image.
+            String process = attribute(metadata.getAsTree(format), "sof", "process");
+            return process != null && !process.equals("2");
+        }
+        return false;
+    }
+
+    private static String attribute(Node node, String name, String attribute) {
+        if (node.getNodeName().equals(name)) {
+            NamedNodeMap attributes = node.getAttributes();
+            Node value = attributes == null ? null : attributes.getNamedItem(attribute);
+            return value == null ? null : value.getNodeValue();
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            String value = attribute(child, name, attribute);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private BufferedImage ringImage() throws IOException {
+        ImageTypeSpecifier type = reader.getImageTypes(0).next();
+        SampleModel sampleModel;
+        try {
+            sampleModel = type.getSampleModel(width, height);
+        } catch (IllegalArgumentException e) {
+            // A sample model can not describe more than Integer.MAX_VALUE pixels.
+            return null;
+        }
+        int rowElements;
+        int banks = 1;
+        if (sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel component = (ComponentSampleModel) sampleModel;
+            rowElements = component.getScanlineStride();
+            banks = Arrays.stream(component.getBankIndices()).max().orElse(0) + 1;
+        } else if (sampleModel instanceof SinglePixelPackedSampleModel) {
+            rowElements = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+        } else if (sampleModel instanceof MultiPixelPackedSampleModel) {
+            rowElements = ((MultiPixelPackedSampleModel) sampleModel).getScanlineStride();
+        } else {
+            return null;
+        }
+        DataBuffer buffer = new RingDataBuffer(sampleModel.getDataType(), rowElements * RING_ROWS, banks);
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer, null);
+        ColorModel colorModel = type.getColorModel();
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+    }
+
+    private void readSequential(BufferedImage ring) throws IOException {
+        IIOReadUpdateListener listener = new IIOReadUpdateListener() {
+            @Override
+            public void imageUpdate(ImageReader source, BufferedImage image, int minX, int minY,
+                                    int updateWidth, int updateHeight, int periodX, int periodY, int[] bands) {
+                for (int row = minY; row < minY + updateHeight; row++) {
+                    readRow(image, row);
+                    addRow(row);
+                }
+            }
+
+            @Override
+            public void passStarted(ImageReader source, BufferedImage image, int pass, int minPass, int maxPass,
+                                    int minX, int minY, int periodX, int periodY, int[] bands) {
+            }
+
+            @Override
+            public void passComplete(ImageReader source, BufferedImage image) {
+            }
+
+            @Override
+            public void thumbnailPassStarted(ImageReader source, BufferedImage thumbnail, int pass, int minPass,
+                                             int maxPass, int minX, int minY, int periodX, int periodY,
+                                             int[] bands) {
+            }
+
+            @Override
+            public void thumbnailUpdate(ImageReader source, BufferedImage thumbnail, int minX, int minY,
+                                        int updateWidth, int updateHeight, int periodX, int periodY,
+                                        int[] bands) {
+            }
+
+            @Override
+            public void thumbnailPassComplete(ImageReader source, BufferedImage thumbnail) {
+            }
+        };
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setDestination(ring);
+        reader.addIIOReadUpdateListener(listener);
+        try {
+            reader.read(0, param);
+        } finally {
+            reader.removeIIOReadUpdateListener(listener);
+        }
+    }
+
+    private void readRow(BufferedImage image, int row) {
+        SampleModel sampleModel = image.getSampleModel();
+        ColorModel colorModel = image.getColorModel();
+        // 8 bit sRGB rows are read straight out of the ring, anything else is converted by getRGB.
+        if (!(sampleModel instanceof ComponentSampleModel) || !(colorModel instanceof ComponentColorModel)
+                || sampleModel.getDataType() != DataBuffer.TYPE_BYTE || !colorModel.getColorSpace().isCS_sRGB()
+                || colorModel.getNumColorComponents() != 3 || colorModel.isAlphaPremultiplied()) {
+            image.getRGB(0, row, width, 1, rgb, 0, width);
+            return;
+        }
+        ComponentSampleModel component = (ComponentSampleModel) sampleModel;
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        int[] banks = component.getBankIndices();
+        int[] offsets = component.getBandOffsets();
+        int pixelStride = component.getPixelStride();
+        int index = row * component.getScanlineStride();
+        for (int col = 0; col < width; col++, index += pixelStride) {
+            rgb[col] = 0xff000000 | buffer.getElem(banks[0], index + offsets[0]) << 16
+                    | buffer.getElem(banks[1], index + offsets[1]) << 8
+                    | buffer.getElem(banks[2], index + offsets[2]);
+        }
+    }
+
+    private void readBands() throws IOException {
+        // Every band decodes the file from its start, so there are at most MAX_BAND_READS of them.
+        int bandRows = Math.max(Math.max(1, BAND_PIXELS / width), (height + MAX_BAND_READS - 1) / MAX_BAND_READS);
+        int[] band = null;
+        for (int first = 0; first < height; first += bandRows) {
+            int rows = Math.min(bandRows, height - first);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, first, width, rows));
+            BufferedImage image = reader.read(0, param);
+            if (band == null) {
+                band = new int[width * rows];
+            }
+            image.getRGB(0, 0, width, rows, band, 0, width);
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(band, row * width, rgb, 0, width);
+                addRow(first + row);
+            }
+        }
+    }
+
+    private void addRow(int row) {
+        int xPadding = (paddedWidth - width) / 2;
+        int yPadding = (paddedHeight - height) / 2;
+        emitTileRows((row + yPadding) / size);
+        int x = 0;
+        for (int col = 0; col < cols; col++) {
+            int end = Math.min((col + 1) * size - xPadding, width);
+            if (x < end) {
+                tileSums[col] += KERNEL.sum(rgb, x, end);
+                x = end;
+            }
+        }
+    }
+
+    private void emitTileRows(int toTileRow) {
+        int xPadding = (paddedWidth - width) / 2;
+        int yPadding = (paddedHeight - height) / 2;
+        long tileArea = (long) size * size;
+        for (; nextTileRow < toTileRow; nextTileRow++) {
+            int firstRow = Math.max(nextTileRow * size - yPadding, 0);
+            int lastRow = Math.min((nextTileRow + 1) * size - yPadding, height);
+            for (int col = 0; col < cols; col++) {
+                int covered = Math.max(Math.min((col + 1) * size - xPadding, width)
+                        - Math.max(col * size - xPadding, 0), 0);
+                long white = tileArea - (long) covered * Math.max(lastRow - firstRow, 0);
+                long sum = tileSums[col] + white * WHITE_LUMINANCE;
+                brightness[col] = sum / (255.0 * IntegralImage.LUMINANCE_SCALE) / tileArea;
+            }
+            Arrays.fill(tileSums, 0);
+            consumer.accept(brightness, nextTileRow);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The ImageSequenceSource class reads the frames of a video stored as numbered image files.
+ * Every file is decoded into the same destination image while its format allows it,
+ * so decoding a frame does not allocate a new image.
+ */
+public class ImageSequenceSource implements FrameSource {
+    private static final String[] EXTENSIONS = {".png", ".jpeg", ".jpg"};
+    private final List<File> files;
+    private final int width;
+    private final int height;
+    private int next;
+    private BufferedImage destination;
+
+    /**
+     * Constructs an ImageSequenceSource over the image files of a directory,
+     * ordered by the last number in their names.
+     * @param directory A String representing the path to the directory of frames.
+     * @throws IOException If the directory holds no frames or the first one can not be read.
+     */
+    public ImageSequenceSource(String directory) throws IOException {
+        File[] children = new File(directory).listFiles();
+        if (children == null) {
+            throw new IOException(directory);
+        }
+        files = new ArrayList<>();
+        for (File child : children) {
+            if (child.isFile() && isImage(child.getName())) {
+                files.add(child);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IOException(directory);
+        }
+        files.sort(Comparator.comparingLong((File file) -> frameNumber(file.getName()))
+                .thenComparing(File::getName));
+        try (ImageInputStream input = ImageIO.createImageInputStream(files.get(0))) {
+            ImageReader reader = readerOf(input, files.get(0));
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+            reader.dispose();
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Return the number of frames in the sequence.
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return files.size();
+    }
+
+    @Override
+    public boolean readFrame(int[] pixels) throws IOException {
+        if (next == files.size()) {
+            return false;
+        }
+        File file = files.get(next++);
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = readerOf(input, file);
+            try {
+                if (reader.getWidth(0) != width || reader.getHeight(0) != height) {
+                    throw new IOException(file.getPath());
+                }
+                Image.copyPixels(reader.read(0, readParam(reader)), pixels);
+            } finally {
+                reader.dispose();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        destination = null;
+    }
+
+    private ImageReadParam readParam(ImageReader reader) throws IOException {
+        // The destination is reused while the frames decode to the same image type.
+        ImageTypeSpecifier type = reader.getImageTypes(0).next();
+        if (destination == null || destination.getType() != type.getBufferedImageType()
+                || destination.getType() == BufferedImage.TYPE_CUSTOM) {
+            destination = type.createBufferedImage(width, height);
+        }
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setDestination(destination);
+        return param;
+    }
+
+    private static ImageReader readerOf(ImageInputStream input, File file) throws IOException {
+        Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+        if (readers == null || !readers.hasNext()) {
+            throw new IOException(file.getPath());
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    private static long frameNumber(String name) {
+        int end = name.length();
+        while (end > 0 && !Character.isDigit(name.charAt(end - 1))) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && Character.isDigit(name.charAt(start - 1)) && end - start < 18) {
+            start--;
+        }
+        return start == end ? -1 : Long.parseLong(name.substring(start, end));
+    }
+
+    private static boolean isImage(String name) {
+        String lower = name.toLowerCase();
+        for (String extension : EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+/**
+ * The IntegralImage class is a summed-area table of the luminance of an image.
+ * It is built once in a single pass over the pixels, after which the luminance sum of
+ * any rectangle of the image is answered with four lookups.
+ * Luminance is kept in fixed point (weights scaled by LUMINANCE_SCALE) so the sums are exact.
+ */
+public class IntegralImage {
+    /**
+     * The fixed point scale of the luminance weights, a pure white pixel weighs
+     * 255 * LUMINANCE_SCALE.
+     */
+    public static final int LUMINANCE_SCALE = 10000;
+    static final int RED_WEIGHT = 2126;
+    static final int GREEN_WEIGHT = 7152;
+    static final int BLUE_WEIGHT = 722;
+    private static final LuminanceKernel KERNEL = LuminanceKernel.get();
+    private final long[] table;
+    private final int[] rowLuminance;
+    private final int width;
+    private final int height;
+
+    /**
+     * Constructs the summed-area table of the given image.
+     * @param image The Image to build the table for.
+     */
+    public IntegralImage(Image image) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.table = new long[(width + 1) * (height + 1)];
+        this.rowLuminance = new int[width];
+        build(image);
+    }
+
+    /**
+     * Rebuilds the table in place for another image of the same dimensions,
+     * so a sequence of frames reuses the same arrays.
+     * @param image The Image to build the table for.
+     * @throws IllegalArgumentException If the image dimensions differ from the table's.
+     */
+    public void update(Image image) throws IllegalArgumentException {
+        if (image.getWidth() != width || image.getHeight() != height) {
+            throw new IllegalArgumentException();
+        }
+        build(image);
+    }
+
+    private void build(Image image) {
+        int[] raster = image.getRaster();
+        int tableWidth = width + 1;
+        for (int row = 0; row < height; row++) {
+            int index = image.getOffset() + row * image.getStride();
+            int above = row * tableWidth;
+            int current = above + tableWidth;
+            // The luminance of the row is computed by the vectorized kernel when available,
+            // the running sum itself is sequential.
+            KERNEL.luminance(raster, index, rowLuminance, width);
+            long rowSum = 0;
+            for (int col = 0; col < width; col++) {
+                rowSum += rowLuminance[col];
+                table[current + col + 1] = table[above + col + 1] + rowSum;
+            }
+        }
+    }
+
+    /**
+     * Returns the fixed point luminance of a packed RGB pixel.
+     * @param rgb The packed RGB value.
+     * @return The luminance scaled by LUMINANCE_SCALE.
+     */
+    public static int luminance(int rgb) {
+        return ((rgb >> 16) & 0xff) * RED_WEIGHT + ((rgb >> 8) & 0xff) * GREEN_WEIGHT
+                + (rgb & 0xff) * BLUE_WEIGHT;
+    }
+
+    /**
+     * Return the width of the table's image.
+     * @return The image width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Return the height of the table's image.
+     * @return The image height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the fixed point luminance sum of the rectangle [row0,row1) x [col0,col1).
+     * @param row0 The first row of the rectangle.
+     * @param col0 The first column of the rectangle.
+     * @param row1 The row after the last row of the rectangle.
+     * @param col1 The column after the last column of the rectangle.
+     * @return The luminance sum scaled by LUMINANCE_SCALE.
+     */
+    public long sum(int row0, int col0, int row1, int col1) {
+        int tableWidth = width + 1;
+        return table[row1 * tableWidth + col1] - table[row0 * tableWidth + col1]
+                - table[row1 * tableWidth + col0] + table[row0 * tableWidth + col0];
+    }
+
+    /**
+     * Returns the fixed point luminance sum of the rectangle [0,row) x [0,col), whose bounds
+     * may fall inside pixels, which then count for the part of their area in the rectangle.
+     * The table is interpolated bilinearly between the pixel corners, which is exact as the
+     * sum grows bilinearly across every pixel. The sum of any rectangle with fractional
+     * bounds is combined from four of these, as with the whole pixel lookups.
+     * @param row The row bound of the rectangle, in [0,height].
+     * @param col The column bound of the rectangle, in [0,width].
+     * @return The luminance sum scaled by LUMINANCE_SCALE.
+     */
+    public double sumTo(double row, double col) {
+        int tableWidth = width + 1;
+        // The last pixel of a row or column is interpolated at its far side.
+        int pixelRow = Math.min((int) row, height - 1);
+        int pixelCol = Math.min((int) col, width - 1);
+        double y = row - pixelRow;
+        double x = col - pixelCol;
+        int above = pixelRow * tableWidth + pixelCol;
+        int below = above + tableWidth;
+        double top = table[above] + x * (table[above + 1] - table[above]);
+        double bottom = table[below] + x * (table[below + 1] - table[below]);
+        return top + y * (bottom - top);
+    }
+
+    /**
+     * Returns the average brightness of the rectangle [row0,row1) x [col0,col1),
+     * normalized to [0,1].
+     * @param row0 The first row of the rectangle.
+     * @param col0 The first column of the rectangle.
+     * @param row1 The row after the last row of the rectangle.
+     * @param col1 The column after the last column of the rectangle.
+     * @return The average brightness of the rectangle.
+     */
+    public double brightness(int row0, int col0, int row1, int col1) {
+        long area = (long) (row1 - row0) * (col1 - col0);
+        return sum(row0, col0, row1, col1) / (255.0 * LUMINANCE_SCALE) / area;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+/**
+ * The LuminanceKernel class computes the fixed point luminance of runs of packed RGB pixels,
+ * as defined by IntegralImage.luminance.
+ * The kernel returned by get uses the Vector API when the jdk.incubator.vector module is
+ * available (run with --add-modules jdk.incubator.vector) and falls back to a scalar loop
+ * otherwise, or when the property ascii_art.vector is set to false. Both give exact,
+ * identical results.
+ */
+public abstract class LuminanceKernel {
+    private static final String VECTOR_PROPERTY = "ascii_art.vector";
+    private static final String VECTOR_KERNEL = "image.VectorLuminanceKernel";
+    private static final LuminanceKernel SCALAR = new ScalarLuminanceKernel();
+    private static final LuminanceKernel DEFAULT = load();
+
+    /**
+     * Return the fastest available kernel.
+     * @return The vectorized kernel if available, the scalar one otherwise.
+     */
+    public static LuminanceKernel get() {
+        return DEFAULT;
+    }
+
+    /**
+     * Return the scalar kernel.
+     * @return The kernel computing one pixel at a time.
+     */
+    public static LuminanceKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Return whether the kernel processes several pixels per instruction.
+     * @return true for the vectorized kernel.
+     */
+    public abstract boolean isVectorized();
+
+    /**
+     * Returns the fixed point luminance sum of the pixels in [from,to) of an array.
+     * @param pixels The packed RGB pixels.
+     * @param from The index of the first pixel.
+     * @param to The index after the last pixel.
+     * @return The luminance sum scaled by IntegralImage.LUMINANCE_SCALE.
+     */
+    public abstract long sum(int[] pixels, int from, int to);
+
+    /**
+     * Computes the fixed point luminance of every pixel of a run.
+     * @param pixels The packed RGB pixels.
+     * @param from The index of the first pixel.
+     * @param luminance The array receiving the luminance of each pixel, from index 0.
+     * @param length The number of pixels.
+     */
+    public abstract void luminance(int[] pixels, int from, int[] luminance, int length);
+
+    private static LuminanceKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            LuminanceKernel kernel = (LuminanceKernel) Class.forName(VECTOR_KERNEL)
+                    .getDeclaredConstructor().newInstance();
+            return kernel.isVectorized() ? kernel : SCALAR;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    /**
+     * The kernel computing one pixel at a time.
+     */
+    private static class ScalarLuminanceKernel extends LuminanceKernel {
+        @Override
+        public boolean isVectorized() {
+            return false;
+        }
+
+        @Override
+        public long sum(int[] pixels, int from, int to) {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += IntegralImage.luminance(pixels[i]);
+            }
+            return sum;
+        }
+
+        @Override
+        public void luminance(int[] pixels, int from, int[] luminance, int length) {
+            for (int i = 0; i < length; i++) {
+                luminance[i] = IntegralImage.luminance(pixels[from + i]);
+            }
+        }
+    }
+}
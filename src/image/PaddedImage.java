@@ -0,0 +1,102 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * A view of an image centered on a larger white canvas.
+ * The padding is never stored, pixels outside the original image are reported as white.
+ * The view has no raster of its own, so its raster accessors throw instead of exposing the
+ * buffer of the original image under the padded dimensions.
+ */
+class PaddedImage extends Image {
+    private static final int WHITE = Color.WHITE.getRGB();
+    private final Image original;
+    private final int xPadding;
+    private final int yPadding;
+
+    /**
+     * Constructs a padded view of an image.
+     * @param original The Image to pad.
+     * @param width An int representing the width of the padded image.
+     * @param height An int representing the height of the padded image.
+     */
+    PaddedImage(Image original, int width, int height) {
+        super(null, 0, width, width, height);
+        this.original = original;
+        this.xPadding = (width - original.getWidth()) / 2;
+        this.yPadding = (height - original.getHeight()) / 2;
+    }
+
+    @Override
+    public int getRGB(int x, int y) {
+        int row = x - yPadding;
+        int col = y - xPadding;
+        if (row < 0 || row >= original.getHeight() || col < 0 || col >= original.getWidth()) {
+            return WHITE;
+        }
+        return original.getRGB(row, col);
+    }
+
+    /**
+     * Return the number of white columns left of the original image.
+     * @return The horizontal padding.
+     */
+    int getXPadding() {
+        return xPadding;
+    }
+
+    /**
+     * Return the number of white rows above the original image.
+     * @return The vertical padding.
+     */
+    int getYPadding() {
+        return yPadding;
+    }
+
+    /**
+     * The padded view has no raster.
+     * @throws UnsupportedOperationException Always, read the pixels with getRGB.
+     */
+    @Override
+    public int[] getRaster() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The padded view has no raster.
+     * @throws UnsupportedOperationException Always, read the pixels with getRGB.
+     */
+    @Override
+    public int getOffset() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The padded view has no raster.
+     * @throws UnsupportedOperationException Always, read the pixels with getRGB.
+     */
+    @Override
+    public int getStride() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    BufferedImage toBufferedImage() {
+        int width = getWidth();
+        BufferedImage bufferedImage = new BufferedImage(width, getHeight(), BufferedImage.TYPE_INT_RGB);
+        int[] whiteRow = new int[width];
+        Arrays.fill(whiteRow, WHITE);
+        for (int row = 0; row < getHeight(); row++) {
+            bufferedImage.setRGB(0, row, width, 1, whiteRow, 0, width);
+        }
+        bufferedImage.setRGB(xPadding, yPadding, original.getWidth(), original.getHeight(),
+                original.getRaster(), original.getOffset(), original.getStride());
+        return bufferedImage;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The RawRgbSource class reads the frames of a video from a stream of raw RGB pixels,
+ * three bytes per pixel, row after row and frame after frame, as written by
+ * "ffmpeg -f rawvideo -pix_fmt rgb24". Every frame is read into the same byte buffer.
+ */
+public class RawRgbSource implements FrameSource {
+    private final InputStream input;
+    private final int width;
+    private final int height;
+    private final byte[] buffer;
+
+    /**
+     * Constructs a RawRgbSource over a stream of frames of the given dimensions.
+     * @param input The InputStream of raw RGB pixels.
+     * @param width An int representing the width of the frames.
+     * @param height An int representing the height of the frames.
+     */
+    public RawRgbSource(InputStream input, int width, int height) {
+        this.input = input;
+        this.width = width;
+        this.height = height;
+        this.buffer = new byte[3 * width * height];
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean readFrame(int[] pixels) throws IOException {
+        int read = input.readNBytes(buffer, 0, buffer.length);
+        if (read == 0) {
+            return false;
+        }
+        if (read < buffer.length) {
+            throw new IOException("Truncated frame");
+        }
+        for (int i = 0, index = 0; i < pixels.length; i++, index += 3) {
+            pixels[i] = 0xff000000 | (buffer[index] & 0xff) << 16 | (buffer[index + 1] & 0xff) << 8
+                    | (buffer[index + 2] & 0xff);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
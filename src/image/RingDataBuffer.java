@@ -0,0 +1,48 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+import java.awt.image.DataBuffer;
+
+/**
+ * A DataBuffer holding only the last few rows of a raster of any height.
+ * Every element index is wrapped into a power of two sized array, so a raster as large as a
+ * whole image can be decoded into it as long as each row is read before the decoder comes
+ * back around to it, which holds for decoders writing rows in order. Indices that overflow
+ * an int still wrap consistently, as the size is a power of two.
+ */
+final class RingDataBuffer extends DataBuffer {
+    private final int[][] banks;
+    private final int mask;
+    private final int elementMask;
+
+    /**
+     * Constructs a ring buffer holding at least the given number of elements per bank.
+     * @param dataType The type of the elements, as in DataBuffer.
+     * @param minSize The number of elements that must be held at once in every bank.
+     * @param numBanks The number of banks.
+     */
+    RingDataBuffer(int dataType, int minSize, int numBanks) {
+        super(dataType, ringSize(minSize), numBanks);
+        this.banks = new int[numBanks][getSize()];
+        this.mask = getSize() - 1;
+        // Elements are truncated to their type, as DataBufferByte and DataBufferUShort do.
+        this.elementMask = dataType == TYPE_BYTE ? 0xff : dataType == TYPE_USHORT ? 0xffff : -1;
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+        return banks[bank][i & mask];
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+        banks[bank][i & mask] = val & elementMask;
+    }
+
+    private static int ringSize(int minSize) {
+        return minSize <= 1 ? 1 : Integer.highestOneBit(minSize - 1) << 1;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The image package contains classes related to image processing and manipulation.
+ * It includes classes for loading, editing, and analyzing images.
+ */
+package image;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The LuminanceKernel computing a full vector of pixels at a time with the Vector API.
+ * The channels of the packed pixels are unpacked with lane-wise shifts and masks, and sums are
+ * accumulated in int lanes that are drained into a long before their total can overflow.
+ * It is only loaded by LuminanceKernel.get when the jdk.incubator.vector module is available.
+ */
+class VectorLuminanceKernel extends LuminanceKernel {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    // A lane gains at most 255 * LUMINANCE_SCALE per vector, and the lanes are added up as an
+    // int before widening, so the sum of all the lanes must fit in an int when drained.
+    private static final int VECTORS_PER_DRAIN =
+            Integer.MAX_VALUE / (255 * IntegralImage.LUMINANCE_SCALE) / SPECIES.length();
+    private static final int MIN_LANES = 4;
+
+    @Override
+    public boolean isVectorized() {
+        return SPECIES.length() >= MIN_LANES;
+    }
+
+    @Override
+    public long sum(int[] pixels, int from, int to) {
+        int step = SPECIES.length();
+        int bound = from + SPECIES.loopBound(to - from);
+        long sum = 0;
+        int i = from;
+        while (i < bound) {
+            int drainAt = Math.min(bound, i + VECTORS_PER_DRAIN * step);
+            IntVector lanes = IntVector.zero(SPECIES);
+            for (; i < drainAt; i += step) {
+                lanes = lanes.add(luminance(IntVector.fromArray(SPECIES, pixels, i)));
+            }
+            sum += lanes.reduceLanesToLong(VectorOperators.ADD);
+        }
+        for (; i < to; i++) {
+            sum += IntegralImage.luminance(pixels[i]);
+        }
+        return sum;
+    }
+
+    @Override
+    public void luminance(int[] pixels, int from, int[] luminance, int length) {
+        int step = SPECIES.length();
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += step) {
+            luminance(IntVector.fromArray(SPECIES, pixels, from + i)).intoArray(luminance, i);
+        }
+        for (; i < length; i++) {
+            luminance[i] = IntegralImage.luminance(pixels[from + i]);
+        }
+    }
+
+    private static IntVector luminance(IntVector rgb) {
+        IntVector red = rgb.lanewise(VectorOperators.LSHR, 16).and(0xff);
+        IntVector green = rgb.lanewise(VectorOperators.LSHR, 8).and(0xff);
+        IntVector blue = rgb.and(0xff);
+        return red.mul(IntegralImage.RED_WEIGHT).add(green.mul(IntegralImage.GREEN_WEIGHT))
+                .add(blue.mul(IntegralImage.BLUE_WEIGHT));
+    }
+}
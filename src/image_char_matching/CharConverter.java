@@ -20,7 +20,10 @@ import java.awt.image.BufferedImage;
 public class CharConverter {
     private static final double X_OFFSET_FACTOR = 0.2;
     private static final double Y_OFFSET_FACTOR = 0.75;
-    private static final String FONT_NAME = "Courier New";
+    /**
+     * The font the characters are rendered in.
+     */
+    public static final String FONT_NAME = "Courier New";
     /**
      * Default pixel resolution.
      */
@@ -0,0 +1,111 @@
+/**
+ * The image_char_matching package contains classes related to character
+ * matching based on image brightness.
+ * It includes algorithms for matching characters to image brightness values.
+ */
+package image_char_matching;
+
+import java.util.Arrays;
+
+/**
+ * An immutable brightness to character table built from a charset.
+ * Brightness values in [0,1] are quantized into BUCKETS buckets. A bucket whose whole
+ * range maps to a single character answers with one array read, the few buckets that
+ * contain a boundary between two characters fall back to a binary search.
+ * Both paths return exactly the character the nearest match rule picks.
+ */
+public class CharLookupTable {
+    /**
+     * The number of buckets the brightness range [0,1] is divided into.
+     */
+    public static final int BUCKETS = 4096;
+    /**
+     * The bucket value of buckets that contain a boundary between two characters.
+     */
+    public static final char AMBIGUOUS = Character.MAX_VALUE;
+    private final double[] brightness;
+    private final char[] chars;
+    private final char[] buckets;
+    private final double min;
+    private final double max;
+
+    /**
+     * Constructs a lookup table from the charset brightness values.
+     * @param brightness The distinct character brightness values, in ascending order.
+     * @param chars The character to use for each brightness value.
+     */
+    CharLookupTable(double[] brightness, char[] chars) {
+        this.brightness = brightness;
+        this.chars = chars;
+        this.min = brightness[0];
+        this.max = brightness[brightness.length - 1];
+        this.buckets = new char[BUCKETS + 1];
+        int lower = findIndex(0);
+        for (int i = 0; i <= BUCKETS; i++) {
+            int upper = findIndex((double) (i + 1) / BUCKETS);
+            buckets[i] = lower == upper ? chars[lower] : AMBIGUOUS;
+            lower = upper;
+        }
+    }
+
+    /**
+     * Retrieves the character matching a normalized brightness.
+     * @param brightness A double value in [0,1] representing the brightness of the image.
+     * @return A char representing the matched character.
+     */
+    public char getChar(double brightness) {
+        if (brightness >= 0 && brightness <= 1) {
+            char c = buckets[(int) (brightness * BUCKETS)];
+            if (c != AMBIGUOUS) {
+                return c;
+            }
+        }
+        return chars[findIndex(brightness)];
+    }
+
+    /**
+     * Retrieves the character stored for bucket i, or AMBIGUOUS when the
+     * bucket contains a boundary between two characters.
+     * @param i The bucket index, between 0 and BUCKETS.
+     * @return The bucket character.
+     */
+    public char getBucket(int i) {
+        return buckets[i];
+    }
+
+    /**
+     * Return the lowest character brightness in the table.
+     * @return The minimum brightness.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Return the highest character brightness in the table.
+     * @return The maximum brightness.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    private int findIndex(double brightness) {
+        double reversBrightness = ((max - min) * brightness) + min;
+        if (reversBrightness <= min) {
+            return 0;
+        }
+        if (reversBrightness >= max) {
+            return this.brightness.length - 1;
+        }
+        int ceiling = Arrays.binarySearch(this.brightness, reversBrightness);
+        if (ceiling >= 0) {
+            return ceiling;
+        }
+        ceiling = -ceiling - 1;
+        int floor = ceiling - 1;
+        if ((reversBrightness - this.brightness[floor]) < (this.brightness[ceiling] - reversBrightness)) {
+            return floor;
+        }
+        return ceiling;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * The image_char_matching package contains classes related to character
+ * matching based on image brightness.
+ * It includes algorithms for matching characters to image brightness values.
+ */
+package image_char_matching;
+
+import java.util.Arrays;
+
+/**
+ * An immutable charset together with its lookup table.
+ * The characters and their brightness are kept in two sorted primitive arrays, and changing
+ * the charset creates a new snapshot, so a snapshot can be read by any number of threads
+ * without locking while the charset it was taken from keeps changing.
+ * The shape table is only built when first asked for, as it renders every glyph; threads
+ * asking for it at once may each build it, and they all get equal tables.
+ */
+public final class CharsetSnapshot {
+    /**
+     * The snapshot of the empty charset.
+     */
+    public static final CharsetSnapshot EMPTY = new CharsetSnapshot(new char[0], new double[0]);
+    private final char[] chars;
+    private final double[] brightness;
+    private final CharLookupTable lookupTable;
+    private volatile ShapeLookupTable shapeTable;
+
+    private CharsetSnapshot(char[] chars, double[] brightness) {
+        this.chars = chars;
+        this.brightness = brightness;
+        this.lookupTable = chars.length == 0 ? null : buildLookupTable();
+    }
+
+    /**
+     * Return the number of characters in the charset.
+     * @return The charset size.
+     */
+    public int size() {
+        return chars.length;
+    }
+
+    /**
+     * Return whether the charset is empty.
+     * @return true if the charset holds no character.
+     */
+    public boolean isEmpty() {
+        return chars.length == 0;
+    }
+
+    /**
+     * Return whether the charset holds a character.
+     * @param c The character to look for.
+     * @return true if c is in the charset.
+     */
+    public boolean contains(char c) {
+        return Arrays.binarySearch(chars, c) >= 0;
+    }
+
+    /**
+     * Return the characters of the charset in ascending order.
+     * @return A new array holding the characters.
+     */
+    public char[] getChars() {
+        return chars.clone();
+    }
+
+    /**
+     * Retrieves the brightness to character table of the charset.
+     * @return The CharLookupTable of the charset.
+     * @throws IllegalStateException If the charset is empty.
+     */
+    public CharLookupTable getLookupTable() throws IllegalStateException {
+        if (lookupTable == null) {
+            throw new IllegalStateException();
+        }
+        return lookupTable;
+    }
+
+    /**
+     * Retrieves the table matching tiles to the characters of the charset by shape.
+     * @return The ShapeLookupTable of the charset.
+     * @throws IllegalStateException If the charset is empty.
+     */
+    public ShapeLookupTable getShapeTable() throws IllegalStateException {
+        ShapeLookupTable table = shapeTable;
+        if (table == null) {
+            table = new ShapeLookupTable(chars, brightness, getLookupTable());
+            shapeTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Returns the snapshot of this charset with more characters.
+     * @param added The characters to add, those already in the charset are ignored.
+     * @return A new snapshot, or this one if nothing was added.
+     */
+    CharsetSnapshot with(char... added) {
+        char[] sorted = added.clone();
+        Arrays.sort(sorted);
+        char[] newChars = new char[chars.length + sorted.length];
+        double[] newBrightness = new double[newChars.length];
+        int size = 0;
+        int i = 0;
+        for (int j = 0; j < sorted.length; j++) {
+            char c = sorted[j];
+            if ((j > 0 && sorted[j - 1] == c) || contains(c)) {
+                continue;
+            }
+            while (i < chars.length && chars[i] < c) {
+                newChars[size] = chars[i];
+                newBrightness[size++] = brightness[i++];
+            }
+            newChars[size] = c;
+            newBrightness[size++] = GlyphBrightnessCache.getBrightness(c);
+        }
+        if (size == i) {
+            return this;
+        }
+        System.arraycopy(chars, i, newChars, size, chars.length - i);
+        System.arraycopy(brightness, i, newBrightness, size, chars.length - i);
+        size += chars.length - i;
+        return new CharsetSnapshot(Arrays.copyOf(newChars, size), Arrays.copyOf(newBrightness, size));
+    }
+
+    /**
+     * Returns the snapshot of this charset without some characters.
+     * @param removed The characters to remove, those not in the charset are ignored.
+     * @return A new snapshot, or this one if nothing was removed.
+     */
+    CharsetSnapshot without(char... removed) {
+        char[] newChars = new char[chars.length];
+        double[] newBrightness = new double[chars.length];
+        int size = 0;
+        for (int i = 0; i < chars.length; i++) {
+            if (!holds(removed, chars[i])) {
+                newChars[size] = chars[i];
+                newBrightness[size++] = brightness[i];
+            }
+        }
+        if (size == chars.length) {
+            return this;
+        }
+        return new CharsetSnapshot(Arrays.copyOf(newChars, size), Arrays.copyOf(newBrightness, size));
+    }
+
+    private static boolean holds(char[] array, char c) {
+        for (char value : array) {
+            if (value == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CharLookupTable buildLookupTable() {
+        // Characters of equal brightness share one entry, the lowest of them is used.
+        Integer[] order = new Integer[chars.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(brightness[a], brightness[b]));
+        double[] distinct = new double[chars.length];
+        char[] first = new char[chars.length];
+        int count = 0;
+        for (int index : order) {
+            if (count == 0 || Double.compare(distinct[count - 1], brightness[index]) != 0) {
+                distinct[count] = brightness[index];
+                first[count++] = chars[index];
+            }
+        }
+        return new CharLookupTable(Arrays.copyOf(distinct, count), Arrays.copyOf(first, count));
+    }
+}
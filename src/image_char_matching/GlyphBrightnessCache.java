@@ -0,0 +1,163 @@
+/**
+ * The image_char_matching package contains classes related to character
+ * matching based on image brightness.
+ * It includes algorithms for matching characters to image brightness values.
+ */
+package image_char_matching;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Computes glyph brightness lazily, only for characters that are actually used, and
+ * memoizes it by character code. Computed values are persisted to a small cache file in the
+ * user's own cache directory, ~/.cache/ascii_art, so later runs skip font rendering.
+ * The file starts with a header naming the font, pixel resolution, JDK and OS the glyphs were
+ * rendered with, as they all affect the result. A file with another header or any malformed
+ * line is ignored and written again from freshly rendered glyphs.
+ * Setting the system property ascii_art.glyph_cache to an empty string disables the file,
+ * setting it to a directory stores the file there instead.
+ */
+class GlyphBrightnessCache {
+    private static final String CACHE_PROPERTY = "ascii_art.glyph_cache";
+    private static final String HEADER = String.format("ascii_art glyph brightness v1 font=%s resolution=%d "
+            + "java=%s %s os=%s", CharConverter.FONT_NAME, CharConverter.DEFAULT_PIXEL_RESOLUTION,
+            System.getProperty("java.vendor"), System.getProperty("java.runtime.version"),
+            System.getProperty("os.name"));
+    private static final int CACHED_CHARS = 128;
+    private static final double[] brightness = new double[CACHED_CHARS];
+    private static final Path cacheFile = findCacheFile();
+    private static boolean loaded = false;
+    private static boolean dirty = false;
+
+    static {
+        Arrays.fill(brightness, Double.NaN);
+    }
+
+    /**
+     * Private constructor to prevent instantiation from outside the class.
+     */
+    private GlyphBrightnessCache(){}
+
+    /**
+     * Returns the brightness of a character, rendering its glyph only on the first request.
+     * @param c The character to get the brightness for.
+     * @return A double value representing the brightness of the character.
+     */
+    static synchronized double getBrightness(char c) {
+        if (c >= CACHED_CHARS) {
+            return calculateBrightness(c);
+        }
+        if (!loaded) {
+            load();
+        }
+        if (Double.isNaN(brightness[c])) {
+            brightness[c] = calculateBrightness(c);
+            markDirty();
+        }
+        return brightness[c];
+    }
+
+    /**
+     * Calculates the brightness of a character.
+     * @param c The character to calculate brightness for.
+     * @return A double value representing the brightness of the character.
+     */
+    private static double calculateBrightness(char c) {
+        //pass over the chars
+        int t = 0;
+        //for each char create double array of true and false that represent the char image
+        boolean[][] boolCharArray = CharConverter.convertToBoolArray(c);
+        //row
+        for (boolean[] boolArr : boolCharArray) {
+            //cols in row
+            for (boolean bool : boolArr) {
+                if (bool) {
+                    t++;
+                }
+            }
+        }
+        return (double) t / (CharConverter.DEFAULT_PIXEL_RESOLUTION * CharConverter.DEFAULT_PIXEL_RESOLUTION);
+    }
+
+    private static Path findCacheFile() {
+        String dir = System.getProperty(CACHE_PROPERTY);
+        if (dir == null) {
+            // A shared directory such as java.io.tmpdir would let other users plant the file.
+            String home = System.getProperty("user.home");
+            dir = home == null || home.isEmpty() ? null : Paths.get(home, ".cache", "ascii_art").toString();
+        }
+        if (dir == null || dir.isEmpty()) {
+            return null;
+        }
+        String name = String.format("ascii_art_glyphs_%s_%d.cache",
+                CharConverter.FONT_NAME.replaceAll("[^A-Za-z0-9]", "_"),
+                CharConverter.DEFAULT_PIXEL_RESOLUTION);
+        return Paths.get(dir, name);
+    }
+
+    private static void load() {
+        loaded = true;
+        if (cacheFile == null || !Files.isReadable(cacheFile)) {
+            return;
+        }
+        double[] values = new double[CACHED_CHARS];
+        Arrays.fill(values, Double.NaN);
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return;
+            }
+            String line;
+            int lines = 0;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('=');
+                int c = Integer.parseInt(line.substring(0, separator));
+                double value = Double.parseDouble(line.substring(separator + 1));
+                if (++lines > CACHED_CHARS || c < 0 || c >= CACHED_CHARS || !Double.isNaN(values[c])
+                        || !(value >= 0 && value <= 1)) {
+                    return;
+                }
+                values[c] = value;
+            }
+        } catch (IOException | RuntimeException e) {
+            // A missing or corrupt cache file only means the glyphs are rendered again.
+            return;
+        }
+        System.arraycopy(values, 0, brightness, 0, CACHED_CHARS);
+    }
+
+    private static void markDirty() {
+        if (!dirty && cacheFile != null) {
+            dirty = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(GlyphBrightnessCache::save));
+        }
+    }
+
+    private static synchronized void save() {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path temp = Files.createTempFile(cacheFile.getParent(), "ascii_art_glyphs", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (int c = 0; c < CACHED_CHARS; c++) {
+                    if (!Double.isNaN(brightness[c])) {
+                        writer.write(c + "=" + brightness[c]);
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.getGlobal().warning(String.format("Failed to write to \"%s\"", cacheFile));
+        }
+    }
+}
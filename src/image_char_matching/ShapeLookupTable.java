@@ -0,0 +1,183 @@
+/**
+ * The image_char_matching package contains classes related to character
+ * matching based on image brightness.
+ * It includes algorithms for matching characters to image brightness values.
+ */
+package image_char_matching;
+
+import java.util.Arrays;
+
+/**
+ * An immutable table matching tiles to characters by shape as well as by brightness.
+ * Glyphs and tiles are reduced to CELLS x CELLS masks packed in a long, one bit per cell,
+ * set where the cell is brighter than the average of the glyph or tile. A tile is matched
+ * to the character whose mask differs from its own in the fewest bits, counted with one
+ * XOR and one bitCount, among the characters whose brightness is within a band around the
+ * brightness the tile would be matched to. Tiles of nearly uniform brightness have no
+ * shape and are matched by brightness only, exactly like the CharLookupTable does.
+ */
+public class ShapeLookupTable {
+    /**
+     * The number of cells on each side of a mask.
+     */
+    public static final int CELLS = 8;
+    /**
+     * The mask of a tile without shape, which is matched by brightness only.
+     */
+    public static final long FLAT = -1L;
+    private static final double BAND = 0.125;
+    private static final double MIN_CONTRAST = 0.125;
+    private static final int CACHED_CHARS = 128;
+    private static final long[] glyphMasks = new long[CACHED_CHARS];
+    private static final boolean[] maskComputed = new boolean[CACHED_CHARS];
+    // The mask bits covered by every cell of a tile of 1, 2, 4 and CELLS cells per side.
+    private static final long[][] CELL_BITS = new long[Integer.numberOfTrailingZeros(CELLS) + 1][];
+    static {
+        for (int level = 0; level < CELL_BITS.length; level++) {
+            int side = 1 << level;
+            int span = CELLS / side;
+            CELL_BITS[level] = new long[side * side];
+            for (int bit = 0; bit < CELLS * CELLS; bit++) {
+                CELL_BITS[level][bit / CELLS / span * side + bit % CELLS / span] |= 1L << bit;
+            }
+        }
+    }
+
+    private final CharLookupTable brightnessTable;
+    private final double[] brightness;
+    private final char[] chars;
+    private final long[] masks;
+    private final double min;
+    private final double max;
+
+    /**
+     * Constructs a shape table from a charset.
+     * @param chars The characters of the charset.
+     * @param charBrightness The brightness of each character.
+     * @param brightnessTable The brightness table of the same charset.
+     */
+    ShapeLookupTable(char[] chars, double[] charBrightness, CharLookupTable brightnessTable) {
+        this.brightnessTable = brightnessTable;
+        this.min = brightnessTable.getMin();
+        this.max = brightnessTable.getMax();
+        // All the characters are kept, those of equal brightness may still differ in shape.
+        Integer[] order = new Integer[chars.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(charBrightness[a], charBrightness[b]));
+        this.brightness = new double[chars.length];
+        this.chars = new char[chars.length];
+        this.masks = new long[chars.length];
+        for (int i = 0; i < order.length; i++) {
+            brightness[i] = charBrightness[order[i]];
+            this.chars[i] = chars[order[i]];
+            masks[i] = glyphMask(this.chars[i]);
+        }
+    }
+
+    /**
+     * Builds the mask of a tile from the brightness of its cells.
+     * @param cells The brightness of the cells of the tile, row after row.
+     * @param cellsPerSide The number of cells on each side of the tile: 1, 2, 4 or CELLS.
+     *                     Every cell covers CELLS / cellsPerSide cells of the mask on each side.
+     * @param mean The brightness of the whole tile.
+     * @return The mask of the tile, or FLAT if its cells are too uniform to have a shape.
+     */
+    public static long tileMask(double[] cells, int cellsPerSide, double mean) {
+        long[] cellBits = CELL_BITS[Integer.numberOfTrailingZeros(cellsPerSide)];
+        double low = cells[0];
+        double high = cells[0];
+        long mask = 0;
+        for (int i = 0; i < cellBits.length; i++) {
+            double cell = cells[i];
+            if (cell < low) {
+                low = cell;
+            } else if (cell > high) {
+                high = cell;
+            }
+            if (cell > mean) {
+                mask |= cellBits[i];
+            }
+        }
+        return high - low < MIN_CONTRAST ? FLAT : mask;
+    }
+
+    /**
+     * Retrieves the character matching a tile.
+     * @param brightness A double value in [0,1] representing the brightness of the tile.
+     * @param mask The mask of the tile built by tileMask.
+     * @return A char representing the matched character.
+     */
+    public char getChar(double brightness, long mask) {
+        if (mask == FLAT) {
+            return brightnessTable.getChar(brightness);
+        }
+        double target = (max - min) * Math.min(Math.max(brightness, 0), 1) + min;
+        double band = BAND * (max - min);
+        int from = lowerBound(target - band);
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        double bestGap = Double.MAX_VALUE;
+        for (int i = from; i < this.brightness.length && this.brightness[i] <= target + band; i++) {
+            int distance = Long.bitCount(mask ^ masks[i]);
+            double gap = Math.abs(this.brightness[i] - target);
+            if (distance < bestDistance || (distance == bestDistance && gap < bestGap)) {
+                best = i;
+                bestDistance = distance;
+                bestGap = gap;
+            }
+        }
+        return best < 0 ? brightnessTable.getChar(brightness) : chars[best];
+    }
+
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = brightness.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (brightness[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static synchronized long glyphMask(char c) {
+        if (c < CACHED_CHARS && maskComputed[c]) {
+            return glyphMasks[c];
+        }
+        boolean[][] pixels = CharConverter.convertToBoolArray(c);
+        int size = CharConverter.DEFAULT_PIXEL_RESOLUTION / CELLS;
+        double[] cells = new double[CELLS * CELLS];
+        double mean = 0;
+        for (int row = 0; row < CELLS; row++) {
+            for (int col = 0; col < CELLS; col++) {
+                int bright = 0;
+                for (int y = row * size; y < (row + 1) * size; y++) {
+                    for (int x = col * size; x < (col + 1) * size; x++) {
+                        if (pixels[y][x]) {
+                            bright++;
+                        }
+                    }
+                }
+                cells[row * CELLS + col] = (double) bright / (size * size);
+                mean += cells[row * CELLS + col];
+            }
+        }
+        mean /= CELLS * CELLS;
+        long mask = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] > mean) {
+                mask |= 1L << i;
+            }
+        }
+        if (c < CACHED_CHARS) {
+            glyphMasks[c] = mask;
+            maskComputed[c] = true;
+        }
+        return mask;
+    }
+}
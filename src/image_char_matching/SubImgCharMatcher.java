@@ -5,33 +5,34 @@
  */
 package image_char_matching;
 
-import java.util.*;
+import java.util.TreeSet;
 /**
  * This class is responsible for matching characters based on image brightness.
  * It provides methods to add, remove, and retrieve characters,
  * as well as to get a character based on image brightness.
+ * The charset is held in an immutable CharsetSnapshot that every change replaces with a new
+ * one. Changes are serialized, while lookups read the current snapshot without locking, so
+ * a matcher can be shared by renders running on other threads. A render should take one
+ * snapshot when it starts, to match all its tiles with the same charset.
  */
 public class SubImgCharMatcher {
-    private static HashMap<Character,Double> allAsciiBrightness = new HashMap<>();
-    private TreeMap<Double, TreeSet<Character>> origCharMap;
-    private TreeSet<Character> allChars;
+    private volatile CharsetSnapshot snapshot = CharsetSnapshot.EMPTY;
 
-     static {
-        for(int i = 32; i < 127; i++) {
-            allAsciiBrightness.put((char)i, calculateBrightness((char)i));
-        }
-    }
     /**
      * Constructs a SubImgCharMatcher object with the provided charset.
      * @param charset An array of characters representing the charset to
      *              initialize the matcher with.
      */
     public SubImgCharMatcher(char[] charset) {
-        this.origCharMap = new TreeMap<>();
-        this.allChars = new TreeSet<>();
-        for (char i : charset) {
-            addChar(i);
-        }
+        addChars(charset);
+    }
+
+    /**
+     * Return the current charset.
+     * @return The CharsetSnapshot of the current charset.
+     */
+    public CharsetSnapshot snapshot() {
+        return snapshot;
     }
 
     /**
@@ -40,25 +41,27 @@ public class SubImgCharMatcher {
      * @return A char representing the matched character.
      */
     public char getCharByImageBrightness(double brightness) {
-        double min = origCharMap.firstKey();
-        double max = origCharMap.lastKey();
-        double reversBrightness = ((max - min) * brightness) + min;
-        double floor = origCharMap.floorKey(reversBrightness);
-        double ceiling = origCharMap.ceilingKey(reversBrightness);
-        if ((reversBrightness - floor) < (ceiling - reversBrightness)) {
-            return findMinChar(origCharMap.get(floor));
-        } else {
-            return findMinChar(origCharMap.get(ceiling));
-        }
+        return snapshot.getLookupTable().getChar(brightness);
+    }
 
+    /**
+     * Retrieves the brightness to character table of the current charset.
+     * @return The CharLookupTable of the current charset.
+     */
+    public CharLookupTable getLookupTable() {
+        return snapshot.getLookupTable();
     }
 
     /**
      * Retrieves all characters stored in the matcher.
-     * @return A TreeSet<Character> containing all characters.
+     * @return A new TreeSet<Character> containing all characters.
      */
     public TreeSet<Character> getChar() {
-        return allChars;
+        TreeSet<Character> chars = new TreeSet<>();
+        for (char c : snapshot.getChars()) {
+            chars.add(c);
+        }
+        return chars;
     }
 
     /**
@@ -66,16 +69,15 @@ public class SubImgCharMatcher {
      * @param c The character to add.
      */
     public void addChar(char c) {
-        double brightness = allAsciiBrightness.get(c);
-        allChars.add(c);
-        if (origCharMap.containsKey(brightness)) {
-            origCharMap.get(brightness).add(c);
-        }
-        else {
-            TreeSet<Character> charArray = new TreeSet<>();
-            charArray.add(c);
-            this.origCharMap.put(brightness, charArray);
-        }
+        addChars(c);
+    }
+
+    /**
+     * Adds several characters to the matcher at once.
+     * @param chars The characters to add.
+     */
+    public synchronized void addChars(char... chars) {
+        snapshot = snapshot.with(chars);
     }
 
     /**
@@ -83,48 +85,14 @@ public class SubImgCharMatcher {
      * @param c The character to remove.
      */
     public void removeChar(char c) {
-        double origBrightness = allAsciiBrightness.get(c);
-        if (origCharMap.containsKey(origBrightness)) {
-            TreeSet<Character> list = origCharMap.get(origBrightness);
-            list.remove(c);
-            origCharMap.put(origBrightness, list);
-            if (list.isEmpty()) {
-                origCharMap.remove(origBrightness);
-            } else {
-                origCharMap.put(origBrightness, list);
-            }
-        }
-        allChars.remove(c);
+        removeChars(c);
     }
 
     /**
-     * Calculates the brightness of a character.
-     * @param c The character to calculate brightness for.
-     * @return A double value representing the brightness of the character.
+     * Removes several characters from the matcher at once.
+     * @param chars The characters to remove.
      */
-    private static double calculateBrightness(char c) {
-        //pass over the chars
-        int t = 0;
-        //for each char create double array of true and false that represent the char image
-        boolean[][] boolCharArray = CharConverter.convertToBoolArray(c);
-        //row
-        for (boolean[] boolArr : boolCharArray) {
-            //cols in row
-            for (boolean bool : boolArr) {
-                if (bool) {
-                    t++;
-                }
-            }
-        }
-        return (double) t / (CharConverter.DEFAULT_PIXEL_RESOLUTION * CharConverter.DEFAULT_PIXEL_RESOLUTION);
-    }
-    private char findMinChar(TreeSet<Character> array) {
-        int min = 256;
-        for (Character c : array) {
-            if ((int) c < min) {
-                min = (int) c;
-            }
-        }
-        return (char) min;
+    public synchronized void removeChars(char... chars) {
+        snapshot = snapshot.without(chars);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+/**
+ * The ascii_art package contains classes related to generating ASCII art from images.
+ * It includes algorithms for converting images into ASCII representations.
+ */
+package ascii_art;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs command sequences through the Shell, as a user would type them.
+ */
+class ShellTest {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    /**
+     * Shape matching of a fitted grid served from the render cache divides that grid into cells,
+     * not the grid of the resolution that was sliced last.
+     */
+    @Test
+    void shapeMatchingAfterCachedFittedResolution() throws IOException {
+        Path image = writeImage();
+        String art = lastOutput("image " + image, "res 14", "asciiArt", "res 7", "asciiArt", "res 14",
+                "asciiArt", "match shape", "asciiArt");
+        // 14 fitted columns of an 800x600 image are 10.5 rows high, rounded to 11.
+        assertEquals(11, art.split(System.lineSeparator()).length);
+    }
+
+    /**
+     * Doubling a fitted resolution goes back to the padded image, which the 800x600 image is
+     * padded to 1024x1024 for, so 16 columns of square tiles are 16 rows high.
+     */
+    @Test
+    void resUpLeavesFittedResolution() throws IOException {
+        Path image = writeImage();
+        String art = lastOutput("image " + image, "res 14", "res up", "asciiArt");
+        assertEquals(16, art.split(System.lineSeparator()).length);
+    }
+
+    /**
+     * A power of two within the padded limits is a padded resolution, even after a fitted one.
+     */
+    @Test
+    void powerOfTwoResolutionIsPadded() throws IOException {
+        Path image = writeImage();
+        String art = lastOutput("image " + image, "res 14", "res 64", "asciiArt");
+        assertEquals(64, art.split(System.lineSeparator()).length);
+    }
+
+    private static String lastOutput(String... commands) {
+        PrintStream console = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true));
+        try {
+            Shell shell = new Shell();
+            for (int i = 0; i < commands.length - 1; i++) {
+                shell.execute(commands[i]);
+            }
+            printed.reset();
+            shell.execute(commands[commands.length - 1]);
+        } finally {
+            System.setOut(console);
+        }
+        return printed.toString();
+    }
+
+    private static Path writeImage() throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, (x * 7 + y * 3) % 256 * 0x010101);
+            }
+        }
+        Path dir = Files.createTempDirectory("ascii_art");
+        Path file = dir.resolve("big.png");
+        ImageIO.write(image, "png", file.toFile());
+        dir.toFile().deleteOnExit();
+        file.toFile().deleteOnExit();
+        return file;
+    }
+}